@@ -0,0 +1,139 @@
+package org.srg.smartclient;
+
+import org.srg.smartclient.isomorphic.DataSource;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the number of requests concurrently performed by a single handler,
+ * so that a slow data source can't occupy all the dispatching threads and connections.
+ *
+ * Requests above the limit wait in a bounded queue for at most maxQueueWaitMillis, and are rejected
+ * immediately if the queue is full.
+ */
+public class Bulkhead {
+    public static final long DEFAULT_MAX_QUEUE_WAIT_MILLIS = 30000;
+
+    /**
+     * @param rejected number of requests rejected because the queue was full or the wait time was exceeded
+     */
+    public record Metrics(
+            String dataSource,
+            int maxConcurrentRequests,
+            int inFlight,
+            int queued,
+            long admitted,
+            long rejected
+    ) {}
+
+    private final String dataSource;
+    private final int maxConcurrentRequests;
+
+    /**
+     * Negative if the queue is not bounded
+     */
+    private final int maxQueuedRequests;
+    private final long maxQueueWaitMillis;
+
+    private final Semaphore permits;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public Bulkhead(String dataSource, int maxConcurrentRequests, int maxQueuedRequests, long maxQueueWaitMillis) {
+        if (maxConcurrentRequests <= 0) {
+            throw new IllegalArgumentException("Data source '%s': maxConcurrentRequests must be positive, but is %d."
+                    .formatted(dataSource, maxConcurrentRequests));
+        }
+
+        this.dataSource = dataSource;
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.maxQueuedRequests = maxQueuedRequests;
+        this.maxQueueWaitMillis = maxQueueWaitMillis;
+        this.permits = new Semaphore(maxConcurrentRequests, true);
+    }
+
+    /**
+     * @return null if the data source has no concurrency limit
+     */
+    public static Bulkhead of(DataSource ds) {
+        if (!isLimited(ds)) {
+            return null;
+        }
+
+        return new Bulkhead(
+                ds.getId(),
+                ds.getMaxConcurrentRequests(),
+                ds.getMaxQueuedRequests() == null ? -1 : ds.getMaxQueuedRequests(),
+                ds.getMaxQueueWaitMillis() == null ? DEFAULT_MAX_QUEUE_WAIT_MILLIS : ds.getMaxQueueWaitMillis()
+        );
+    }
+
+    public static boolean isLimited(DataSource ds) {
+        return ds != null && ds.getMaxConcurrentRequests() != null && ds.getMaxConcurrentRequests() > 0;
+    }
+
+    /**
+     * Must be followed by {@link #exit()} if succeeded.
+     *
+     * @return false if the request is rejected
+     */
+    public boolean tryEnter() {
+        if (!permits.tryAcquire()) {
+            final int n = queued.incrementAndGet();
+            try {
+                if ((maxQueuedRequests >= 0 && n > maxQueuedRequests)
+                        || !permits.tryAcquire(maxQueueWaitMillis, TimeUnit.MILLISECONDS)) {
+                    rejected.increment();
+                    return false;
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                rejected.increment();
+                return false;
+            } finally {
+                queued.decrementAndGet();
+            }
+        }
+
+        inFlight.incrementAndGet();
+        admitted.increment();
+        return true;
+    }
+
+    public void exit() {
+        inFlight.decrementAndGet();
+        permits.release();
+    }
+
+    public String getDataSource() {
+        return dataSource;
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public int getMaxQueuedRequests() {
+        return maxQueuedRequests;
+    }
+
+    public long getMaxQueueWaitMillis() {
+        return maxQueueWaitMillis;
+    }
+
+    public Metrics getMetrics() {
+        return new Metrics(
+                dataSource,
+                maxConcurrentRequests,
+                inFlight.get(),
+                queued.get(),
+                admitted.sum(),
+                rejected.sum()
+        );
+    }
+}
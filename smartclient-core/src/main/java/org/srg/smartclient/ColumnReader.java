@@ -0,0 +1,52 @@
+package org.srg.smartclient;
+
+import org.srg.smartclient.isomorphic.DSField;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Reads a single fetched column with the getter that corresponds to the field type,
+ * readers are resolved once per fetch plan rather than per cell.
+ */
+@FunctionalInterface
+public interface ColumnReader {
+    Object read(ResultSet rs, int column) throws SQLException;
+
+    ColumnReader OBJECT = (rs, column) -> {
+        final Object v = rs.getObject(column);
+        return rs.wasNull() ? null : v;
+    };
+
+    ColumnReader BOOLEAN = (rs, column) -> {
+        final boolean v = rs.getBoolean(column);
+        return rs.wasNull() ? null : v;
+    };
+
+    ColumnReader STRING = ResultSet::getString;
+    ColumnReader TIMESTAMP = ResultSet::getTimestamp;
+    ColumnReader DATE = ResultSet::getDate;
+    ColumnReader TIME = ResultSet::getTime;
+
+    /**
+     * Types that may be backed by the columns of a different SQL type (INT/BIGINT/NUMERIC for integers,
+     * decimals, enums stored as integers, etc.) are read as is, to preserve the value representation.
+     *
+     * @param calculated the column is produced by an SQL expression rather than by a table column,
+     *                   its SQL type is not guaranteed to match the field type
+     */
+    static ColumnReader forField(DSField dsf, boolean calculated) {
+        if (calculated || dsf.getType() == null) {
+            return OBJECT;
+        }
+
+        return switch (dsf.getType()) {
+            case BOOLEAN -> BOOLEAN;
+            case TEXT, NTEXT, PASSWORD, LINK, PHONENUMBER, CREATOR, MODIFIER -> STRING;
+            case DATETIME, CREATORTIMESTAMP, MODIFIERTIMESTAMP -> TIMESTAMP;
+            case DATE -> DATE;
+            case TIME -> TIME;
+            default -> OBJECT;
+        };
+    }
+}
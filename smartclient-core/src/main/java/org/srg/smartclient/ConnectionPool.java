@@ -0,0 +1,265 @@
+package org.srg.smartclient;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.srg.smartclient.isomorphic.Config;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Iterator;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Connection pool configured by the {@code sql.<db>.pool.*} properties.
+ *
+ * Idle connections are kept in a lock-free LIFO deque, so the most recently used (warm) connection is reused first,
+ * the number of connections is bounded by a semaphore, that also provides the bounded wait
+ * for {@link Config.SQLConfig.Pool.WhenExhaustedAction#block}.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionPool.class);
+
+    private static final ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+        final Thread t = new Thread(r, "smartclient-pool-evictor");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * @param waitTimeNanos total time spent waiting for a connection by all the borrowers
+     */
+    public record Metrics(
+            String database,
+            int active,
+            int idle,
+            int waiters,
+            long borrowed,
+            long created,
+            long waitTimeNanos
+    ) {}
+
+    private record IdleConnection(
+            Connection connection,
+            long releasedAt
+    ) {}
+
+    private final String database;
+    private final DataSource dataSource;
+    private final Config.SQLConfig.Pool config;
+
+    private final ConcurrentLinkedDeque<IdleConnection> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicInteger activeCount = new AtomicInteger();
+
+    /**
+     * Null if the number of connections is not limited
+     */
+    private final Semaphore permits;
+
+    private final LongAdder borrowed = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder waitTimeNanos = new LongAdder();
+
+    private final ScheduledFuture<?> eviction;
+
+    public ConnectionPool(String database, DataSource dataSource, Config.SQLConfig.Pool config) {
+        this.database = database;
+        this.dataSource = dataSource;
+        this.config = config;
+
+        this.permits = config.getMaxActive() > 0
+                && config.getWhenExhaustedAction() != Config.SQLConfig.Pool.WhenExhaustedAction.grow ?
+                new Semaphore(config.getMaxActive(), true) : null;
+
+        this.eviction = config.getTimeBetweenEvictionRunsMillis() > 0 ?
+                evictor.scheduleWithFixedDelay(this::evict,
+                        config.getTimeBetweenEvictionRunsMillis(), config.getTimeBetweenEvictionRunsMillis(), TimeUnit.MILLISECONDS)
+                : null;
+    }
+
+    public Connection borrow() throws SQLException {
+        acquirePermit();
+
+        try {
+            Connection connection;
+            while ((connection = pollIdle()) != null) {
+                if (!config.isTestOnBorrow() || isValid(connection)) {
+                    break;
+                }
+                discard(connection);
+            }
+
+            if (connection == null) {
+                connection = dataSource.getConnection();
+                created.increment();
+            }
+
+            activeCount.incrementAndGet();
+            borrowed.increment();
+            return connection;
+        } catch (Throwable t) {
+            releasePermit();
+            throw t;
+        }
+    }
+
+    /**
+     * Returns the borrowed connection back to the pool, an uncommitted transaction, if any, is rolled back.
+     */
+    public void release(Connection connection) {
+        activeCount.decrementAndGet();
+
+        try {
+            boolean reusable = !connection.isClosed();
+
+            if (reusable && !connection.getAutoCommit()) {
+                connection.rollback();
+            }
+
+            if (reusable && config.isTestOnReturn()) {
+                reusable = isValid(connection);
+            }
+
+            if (reusable) {
+                final int n = idleCount.incrementAndGet();
+                if (config.getMaxIdle() <= 0 || n <= config.getMaxIdle()) {
+                    idle.offerFirst(new IdleConnection(connection, System.nanoTime()));
+                    return;
+                }
+                idleCount.decrementAndGet();
+            }
+            discard(connection);
+        } catch (SQLException ex) {
+            logger.warn("Database '%s': connection can't be returned to the pool, it will be closed.".formatted(database), ex);
+            discard(connection);
+        } finally {
+            releasePermit();
+        }
+    }
+
+    public Metrics getMetrics() {
+        return new Metrics(
+                database,
+                activeCount.get(),
+                idleCount.get(),
+                permits == null ? 0 : permits.getQueueLength(),
+                borrowed.sum(),
+                created.sum(),
+                waitTimeNanos.sum()
+        );
+    }
+
+    @Override
+    public void close() {
+        if (eviction != null) {
+            eviction.cancel(false);
+        }
+
+        IdleConnection ic;
+        while ((ic = idle.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+            discard(ic.connection());
+        }
+    }
+
+    private void acquirePermit() throws SQLException {
+        if (permits == null || permits.tryAcquire()) {
+            return;
+        }
+
+        if (config.getWhenExhaustedAction() == Config.SQLConfig.Pool.WhenExhaustedAction.fail) {
+            throw new SQLTransientConnectionException("Database '%s': connection pool is exhausted (maxActive: %d)."
+                    .formatted(database, config.getMaxActive()));
+        }
+
+        final long startedAt = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(config.getMaxWait(), TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException("Database '%s': no connection became available within %d ms (maxActive: %d)."
+                        .formatted(database, config.getMaxWait(), config.getMaxActive()));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Database '%s': waiting for a connection was interrupted."
+                    .formatted(database), ex);
+        } finally {
+            waitTimeNanos.add(System.nanoTime() - startedAt);
+        }
+    }
+
+    private void releasePermit() {
+        if (permits != null) {
+            permits.release();
+        }
+    }
+
+    private Connection pollIdle() {
+        final IdleConnection ic = idle.pollFirst();
+        if (ic == null) {
+            return null;
+        }
+
+        idleCount.decrementAndGet();
+        return ic.connection();
+    }
+
+    /**
+     * Closes the connections that have been idle longer than minEvictableIdleTimeMillis (keeping minIdle ones),
+     * and validates up to numTestsPerEvictionRun of the rest, if testWhileIdle is set.
+     *
+     * The least recently used connections are at the tail of the deque.
+     */
+    private void evict() {
+        try {
+            final long now = System.nanoTime();
+            final long evictableIdleNanos = TimeUnit.MILLISECONDS.toNanos(config.getMinEvictableIdleTimeMillis());
+            int tests = config.isTestWhileIdle() ? config.getNumTestsPerEvictionRun() : 0;
+
+            for (Iterator<IdleConnection> it = idle.descendingIterator(); it.hasNext(); ) {
+                final IdleConnection ic = it.next();
+                final boolean expired = config.getMinEvictableIdleTimeMillis() > 0
+                        && now - ic.releasedAt() > evictableIdleNanos
+                        && idleCount.get() > Math.max(config.getMinIdle(), 0);
+
+                if (!expired && tests-- <= 0) {
+                    continue;
+                }
+
+                // a concurrent borrower may have taken it already
+                if (!idle.removeFirstOccurrence(ic)) {
+                    continue;
+                }
+                idleCount.decrementAndGet();
+
+                if (!expired && isValid(ic.connection())) {
+                    idleCount.incrementAndGet();
+                    idle.offerLast(ic);
+                } else {
+                    discard(ic.connection());
+                }
+            }
+        } catch (Throwable t) {
+            logger.warn("Database '%s': idle connections eviction failed.".formatted(database), t);
+        }
+    }
+
+    private boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(config.getValidationTimeout());
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private void discard(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException ex) {
+            logger.debug("Database '%s': connection can't be closed.".formatted(database), ex);
+        }
+    }
+}
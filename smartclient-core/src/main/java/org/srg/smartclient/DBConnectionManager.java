@@ -7,20 +7,39 @@ import org.srg.smartclient.utils.Utils;
 import javax.sql.DataSource;
 import java.io.IOException;
 import java.sql.Connection;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class DBConnectionManager implements JDBCHandler.JDBCPolicy {
     protected static class DBContext {
         private DataSource dataSource;
 
+        /**
+         * Null if pooling is disabled for the database
+         */
+        private ConnectionPool pool;
+
+        /**
+         * Null if the database has no read replicas
+         */
+        private ReplicaSet<String> replicas;
+
         public DataSource getDataSource() {
             return dataSource;
         }
+
+        public ConnectionPool getPool() {
+            return pool;
+        }
+
+        public ReplicaSet<String> getReplicas() {
+            return replicas;
+        }
     }
 
     private static DBConnectionManager instance = new DBConnectionManager();
-    private transient Map<String, DBContext> databaseMap = new HashMap<>();
+    private transient Map<String, DBContext> databaseMap = new ConcurrentHashMap<>();
     private transient String defaultDatabase;
 
     public static DBConnectionManager get() {
@@ -39,13 +58,22 @@ public class DBConnectionManager implements JDBCHandler.JDBCPolicy {
         return defaultDatabase;
     }
 
-    protected Connection getConnection(String database) throws Exception {
+    protected DBContext getDBContext(String database) throws Exception {
         if (database == null || database.isEmpty()) {
             database = getDefaultDatabase();
         }
 
-        DBContext dbCtx = databaseMap.get(database);
-        if (dbCtx == null) {
+        final DBContext existing = databaseMap.get(database);
+        if (existing != null) {
+            return existing;
+        }
+
+        synchronized (databaseMap) {
+            DBContext dbCtx = databaseMap.get(database);
+            if (dbCtx != null) {
+                return dbCtx;
+            }
+
             final Config.SQLConfig.Connection connectionInfo = getSqlConfig().getConnections().get(database);
             dbCtx = new DBContext();
 
@@ -63,16 +91,74 @@ public class DBConnectionManager implements JDBCHandler.JDBCPolicy {
             }
 
             BeanUtils.populate(dbCtx.dataSource, connectionInfo.getDriverProperties());
+
+            if (connectionInfo.getPool().isEnabled()) {
+                dbCtx.pool = new ConnectionPool(database, dbCtx.dataSource, connectionInfo.getPool());
+            }
+
+            if (!connectionInfo.getReplicas().isEmpty()) {
+                dbCtx.replicas = new ReplicaSet<>(connectionInfo.getReplicas(), connectionInfo.getReplicaBalancing());
+            }
+
             databaseMap.put(database, dbCtx);
+            return dbCtx;
         }
+    }
 
-        return dbCtx.getDataSource().getConnection();
+    protected Connection getConnection(String database) throws Exception {
+        return getDBContext(database).getDataSource().getConnection();
     }
 
     @Override
     public void withConnectionDo(String database, Utils.CheckedFunction<Connection, Void> callback) throws Exception {
-        try (Connection connection = this.getConnection(database)){
+        final ConnectionPool pool = getDBContext(database).getPool();
+
+        if (pool == null) {
+            try (Connection connection = this.getConnection(database)){
+                callback.apply(connection);
+            }
+            return;
+        }
+
+        final Connection connection = pool.borrow();
+        try {
             callback.apply(connection);
+        } finally {
+            pool.release(connection);
+        }
+    }
+
+    /**
+     * Routes the operation to one of the database replicas, if any declared by {@code sql.<db>.replicas}.
+     */
+    @Override
+    public void withReadOnlyConnectionDo(String database, Utils.CheckedFunction<Connection, Void> callback) throws Exception {
+        final ReplicaSet<String> replicas = getDBContext(database).getReplicas();
+
+        if (replicas == null) {
+            withConnectionDo(database, callback);
+            return;
+        }
+
+        replicas.withReplicaDo(replica -> {
+            withConnectionDo(replica, conn -> {
+                ReplicaSet.readOnlyDo(conn, callback);
+                return null;
+            });
+            return null;
+        });
+    }
+
+    /**
+     * @return metrics of the connection pools, by database name
+     */
+    public Map<String, ConnectionPool.Metrics> getPoolMetrics() {
+        final Map<String, ConnectionPool.Metrics> metrics = new LinkedHashMap<>();
+        for (Map.Entry<String, DBContext> e : databaseMap.entrySet()) {
+            if (e.getValue().getPool() != null) {
+                metrics.put(e.getKey(), e.getValue().getPool().getMetrics());
+            }
         }
+        return metrics;
     }
 }
@@ -121,6 +121,9 @@ abstract class DSDeclarationBuilder {
         final DataSource ds = ctx.dataSource;
         ctx.write_if_notBlank(ds.getTitleField(),
                 "\t\t, titleField:'%s'\n", ds.getTitleField());
+
+        ctx.write_if(Boolean.TRUE.equals(ds.isProgressiveLoading()),
+                "\t\t, progressiveLoading:true\n");
     }
 
     protected static void buildField(BuilderContext ctx, DSField f) throws ClassNotFoundException {
@@ -28,6 +28,8 @@ import java.io.*;
 import java.net.URL;
 import java.net.URLDecoder;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.stream.Collectors;
@@ -36,15 +38,42 @@ public class DSDispatcher implements IDSDispatcher {
     private static Logger logger = LoggerFactory.getLogger(DSDispatcher.class);
     private Map<String, IHandler> datasourceMap = new LinkedHashMap<>();
     private JDBCHandlerFactory  jdbcHandlerFactory = new JDBCHandlerFactory();
-    private JDBCHandler.JDBCPolicy jdbcPolicy;
+    private TransactionalJDBCPolicy jdbcPolicy;
     private JDKDMIHandlerFactory dmiHandlerFactory;
 
+    /**
+     * Whether SQL operations of a queue are performed within a single transaction
+     */
+    private boolean autoJoinTransactions = true;
+
+    /**
+     * Max number of the queued fetches that are performed concurrently,
+     * each of them holds a connection while it is running
+     */
+    private int queueParallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Lazily created unless provided by {@link #setQueueExecutor(ExecutorService)}
+     */
+    private volatile ExecutorService queueExecutor;
+
+    /**
+     * Per-handler concurrency limits, only for the data sources that declare maxConcurrentRequests
+     */
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    /**
+     * Data source id -> ids of the data sources that refer to it by includeFrom or foreignKey,
+     * lazily built from the registered handlers, null once a handler is (re-)registered
+     */
+    private volatile Map<String, Set<String>> referringDataSources;
+
     public DSDispatcher() {
         this(DBConnectionManager.get());
     }
 
     public DSDispatcher(JDBCHandler.JDBCPolicy jdbcPolicy) {
-        this.jdbcPolicy = jdbcPolicy;
+        this.jdbcPolicy = new TransactionalJDBCPolicy(jdbcPolicy);
         this.dmiHandlerFactory = new JDKDMIHandlerFactory();
     }
 
@@ -53,6 +82,62 @@ public class DSDispatcher implements IDSDispatcher {
         return jdbcPolicy;
     }
 
+    public boolean isAutoJoinTransactions() {
+        return autoJoinTransactions;
+    }
+
+    public void setAutoJoinTransactions(boolean autoJoinTransactions) {
+        this.autoJoinTransactions = autoJoinTransactions;
+    }
+
+    public int getQueueParallelism() {
+        return queueParallelism;
+    }
+
+    /**
+     * @param queueParallelism value less than 2 disables concurrent execution of the queued fetches
+     */
+    public void setQueueParallelism(int queueParallelism) {
+        this.queueParallelism = queueParallelism;
+    }
+
+    /**
+     * Executor for the queued fetches, e.g. a virtual thread one, if the runtime provides it.
+     * The caller is responsible for its shutdown.
+     */
+    public void setQueueExecutor(ExecutorService queueExecutor) {
+        this.queueExecutor = queueExecutor;
+    }
+
+    /**
+     * @return null if the queued fetches must be performed sequentially
+     */
+    protected ExecutorService getQueueExecutor() {
+        if (queueExecutor == null && queueParallelism > 1) {
+            synchronized (this) {
+                if (queueExecutor == null) {
+                    final AtomicInteger threadNum = new AtomicInteger();
+                    final int threads = queueParallelism - 1;
+
+                    /*
+                     * The dispatching thread performs one of the fetches itself, and the executor runs
+                     * a task in the dispatching thread as well, if all the workers are busy.
+                     */
+                    queueExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                            new SynchronousQueue<>(),
+                            r -> {
+                                final Thread t = new Thread(r, "smartclient-queue-%d".formatted(threadNum.incrementAndGet()));
+                                t.setDaemon(true);
+                                return t;
+                            },
+                            new ThreadPoolExecutor.CallerRunsPolicy());
+                    ((ThreadPoolExecutor) queueExecutor).allowCoreThreadTimeOut(true);
+                }
+            }
+        }
+        return queueExecutor;
+    }
+
 
     @Override
     public IHandler getHandlerByName(String dsId) {
@@ -130,109 +215,466 @@ public class DSDispatcher implements IDSDispatcher {
     }
 
     protected DSResponse handleRequest(DSRequest request) {
+        final Bulkhead bulkhead = bulkheads.get(request.getDataSource());
+        if (bulkhead != null && !bulkhead.tryEnter()) {
+            return rejected(request, bulkhead);
+        }
+
         try {
             final IHandler ds = getHandlerByName(request.getDataSource());
-            final DSResponse response = ds.handle(request);
+            final DSResponse response;
+            try {
+                response = ds.handle(request);
+            } finally {
+                if (isWrite(request)) {
+                    invalidateFetchResults(request.getDataSource());
+                }
+            }
 
             response.setOperationId( request.getOperationId());
 //            response.setOperationType( request.getOperationType());
 
-            if (logger.isDebugEnabled()){
-                final ObjectWriter objectWriter = createObjectWriter();
-                String strRequest, strResponse;
+            logResponse(request, response);
+            return response;
+        } catch (Throwable t) {
+            logFailure(request, t);
+            return DSResponse.failure(t.getMessage() == null ? t.getClass().getCanonicalName() : t.getMessage());
+        } finally {
+            if (bulkhead != null) {
+                bulkhead.exit();
+            }
+        }
+    }
 
-                try {
-                    strRequest = objectWriter.writeValueAsString(request);
-                } catch (JsonProcessingException ex) {
-                    strRequest = "{Can't serialize request: %s}".formatted(ex.getMessage());
-                }
+    private DSResponse rejected(DSRequest request, Bulkhead bulkhead) {
+        final Bulkhead.Metrics m = bulkhead.getMetrics();
+        logger.warn("Request to the data source '%s' has been rejected, %d requests are in flight and %d are queued."
+                .formatted(request.getDataSource(), m.inFlight(), m.queued()));
 
-                try {
-                    strResponse = objectWriter.writeValueAsString(response);
-                } catch (JsonProcessingException ex) {
-                    strResponse = "{Can't serialize response: %s}".formatted(ex.getMessage());
-                }
+        final DSResponse response = DSResponse.serverTimeout(
+                "Data source '%s' is overloaded, the request has not been started within %d ms, please try again later.",
+                request.getDataSource(), bulkhead.getMaxQueueWaitMillis());
+        response.setOperationId(request.getOperationId());
+        return response;
+    }
 
-                logger.debug("""
-                    
-                    -------------------------------------------------
-                    - [DSDispatcher - %s]  %s
-                    -------------------------------------------------
-                      Request:
-                        %s
-                    
-                      Response:   
-                        %s
-                    -------------------------------------------------
-                    """.formatted(
-                        request.getOperationType(),
-                        request.getDataSource(),
-                        strRequest,
-                        strResponse
+    /**
+     * @return hit, miss and eviction counts of the data sources that cache fetch results
+     */
+    public List<FetchResultCache.Metrics> getFetchResultCacheMetrics() {
+        return datasourceMap.values().stream()
+                .filter(h -> h instanceof JDBCHandler jdbcHandler && isCacheResults(jdbcHandler.getDataSource()))
+                .map(h -> ((JDBCHandler) h).getFetchResultCache().getMetrics())
+                .collect(Collectors.toList());
+    }
+
+    private static boolean isCacheResults(DataSource ds) {
+        return Boolean.TRUE.equals(ds.isCacheResults())
+                || (ds.getOperationBindings() != null
+                    && ds.getOperationBindings().stream().anyMatch(ob -> Boolean.TRUE.equals(ob.isCacheResults())));
+    }
+
+    private static boolean isWrite(DSRequest request) {
+        return request.getOperationType() == DSRequest.OperationType.ADD
+                || request.getOperationType() == DSRequest.OperationType.UPDATE
+                || request.getOperationType() == DSRequest.OperationType.REMOVE;
+    }
 
-                ));
+    /**
+     * Invalidates the cached fetch results of the data source and of all the data sources that refer to it,
+     * directly or through the other ones, by includeFrom or foreignKey.
+     */
+    public void invalidateFetchResults(String dataSourceId) {
+        final Map<String, Set<String>> referring = getReferringDataSources();
+
+        final Set<String> affected = new LinkedHashSet<>();
+        final Deque<String> pending = new ArrayDeque<>();
+        pending.add(dataSourceId);
+        while (!pending.isEmpty()) {
+            final String id = pending.poll();
+            if (affected.add(id)) {
+                pending.addAll(referring.getOrDefault(id, Set.of()));
             }
-            return response;
-        } catch (Throwable t) {
-            final ObjectWriter objectWriter = createObjectWriter();
-            StringWriter contextWriter = null;
+        }
 
-            if ( t instanceof ContextualRuntimeException crte) {
-                contextWriter = new StringWriter();
+        for (String id : affected) {
+            if (getHandlerByName(id) instanceof JDBCHandler jdbcHandler) {
+                jdbcHandler.getFetchResultCache().invalidate();
+            }
+        }
+    }
 
-                contextWriter.write("""                      
-                      Context:                        
-                    """);
+    private Map<String, Set<String>> getReferringDataSources() {
+        Map<String, Set<String>> referring = referringDataSources;
+        if (referring != null) {
+            return referring;
+        }
 
-                crte.dumpContext_ifAny(contextWriter, "    ", objectWriter);
+        referring = new HashMap<>();
+        for (IHandler h : handlers()) {
+            if (!(h instanceof DSHandler dsHandler) || dsHandler.dataSource().getFields() == null) {
+                continue;
+            }
 
-                contextWriter.append("\n\n  -------");
+            final DataSource ds = dsHandler.dataSource();
+            for (DSField f : ds.getFields()) {
+                try {
+                    if (f.isIncludeField()) {
+                        for (RelationSupport.ForeignKeyRelation fkr : RelationSupport.describeImportFrom(this, ds, f).foreignKeyRelations()) {
+                            referring.computeIfAbsent(fkr.foreign().dataSourceId(), k -> new HashSet<>()).add(ds.getId());
+                        }
+                    } else if (f.getForeignKey() != null && !f.getForeignKey().isBlank()) {
+                        final RelationSupport.ForeignKeyRelation fkr = RelationSupport.describeForeignKey(this, ds, f);
+                        referring.computeIfAbsent(fkr.foreign().dataSourceId(), k -> new HashSet<>()).add(ds.getId());
+                    }
+                } catch (Exception ex) {
+                    logger.debug("Data source '%s': can't describe the relation of the field '%s', it is ignored by the fetch results invalidation."
+                            .formatted(ds.getId(), f.getName()), ex);
+                }
             }
+        }
+
+        referringDataSources = referring;
+        return referring;
+    }
+
+    /**
+     * @return current in-flight and queued request counts of the data sources that have concurrency limits
+     */
+    public List<Bulkhead.Metrics> getBulkheadMetrics() {
+        return bulkheads.values().stream()
+                .map(Bulkhead::getMetrics)
+                .collect(Collectors.toList());
+    }
+
+    private void logResponse(DSRequest request, DSResponse response) {
+        if (logger.isDebugEnabled()){
+            final ObjectWriter objectWriter = createObjectWriter();
+            String strRequest, strResponse;
 
-            String strRequest;
             try {
                 strRequest = objectWriter.writeValueAsString(request);
             } catch (JsonProcessingException ex) {
                 strRequest = "{Can't serialize request: %s}".formatted(ex.getMessage());
             }
 
-            final StringWriter sw = new StringWriter();
-            final PrintWriter pw = new PrintWriter(sw);
-            t.printStackTrace(pw);
+            /*
+             * Streamed rows would be read from the database once more and buffered into the message,
+             * therefore only the fields are logged even at TRACE
+             */
+            final boolean isStreamed = response.getData() != null
+                    && response.getData().getResponseType() == DSResponseDataContainer.ResponseType.STREAMED;
+
+            try {
+                strResponse = (isStreamed ?
+                        objectWriter.withAttribute(Serde.RawDataResponseSerializer.SERIALIZE_FIELDS_ONLY, Boolean.TRUE)
+                        : objectWriter
+                    ).writeValueAsString(response);
+            } catch (JsonProcessingException ex) {
+                strResponse = "{Can't serialize response: %s}".formatted(ex.getMessage());
+            }
 
-            logger.error("""
-                                
+            logger.debug("""
+                
                 -------------------------------------------------
-                - [DSDispatcher]  Unhandled Exception
+                - [DSDispatcher - %s]  %s
                 -------------------------------------------------
                   Request:
                     %s
                 
-                  -------%s  Stack Trace:                         
+                  Response:   
                     %s
                 -------------------------------------------------
                 """.formatted(
-                        strRequest,
-                        contextWriter == null ? "" : "%s".formatted(contextWriter),
-                        sw
-                    )
-            );
-            return DSResponse.failure(t.getMessage() == null ? t.getClass().getCanonicalName() : t.getMessage());
+                    request.getOperationType(),
+                    request.getDataSource(),
+                    strRequest,
+                    strResponse
+
+            ));
+        }
+    }
+
+    private void logFailure(DSRequest request, Throwable t) {
+        final ObjectWriter objectWriter = createObjectWriter();
+        StringWriter contextWriter = null;
+
+        if ( t instanceof ContextualRuntimeException crte) {
+            contextWriter = new StringWriter();
+
+            contextWriter.write("""                      
+                  Context:                        
+                """);
+
+            crte.dumpContext_ifAny(contextWriter, "    ", objectWriter);
+
+            contextWriter.append("\n\n  -------");
+        }
+
+        String strRequest;
+        try {
+            strRequest = objectWriter.writeValueAsString(request);
+        } catch (JsonProcessingException ex) {
+            strRequest = "{Can't serialize request: %s}".formatted(ex.getMessage());
         }
+
+        final StringWriter sw = new StringWriter();
+        final PrintWriter pw = new PrintWriter(sw);
+        t.printStackTrace(pw);
+
+        logger.error("""
+                            
+            -------------------------------------------------
+            - [DSDispatcher]  Unhandled Exception
+            -------------------------------------------------
+              Request:
+                %s
+            
+              -------%s  Stack Trace:                         
+                %s
+            -------------------------------------------------
+            """.formatted(
+                    strRequest,
+                    contextWriter == null ? "" : "%s".formatted(contextWriter),
+                    sw
+                )
+        );
     }
 
     @Override
     public Collection<DSResponse> dispatch(IDSRequest request) {
+        if (request instanceof DSTransaction transaction
+                && isAutoJoinTransactions()
+                && transaction.getOperations().size() > 1) {
+            return dispatchTransaction(transaction);
+        }
+
+        final List<DSRequest> operations = new ArrayList<>();
+        request.forEach(operations::add);
+
         final LinkedList<DSResponse> responses = new LinkedList<>();
 
-        for (DSRequest r: request) {
-            final DSResponse response = handleRequest(r);
+        for (int i = 0; i < operations.size(); ) {
+            int end = i + 1;
+            while (end < operations.size()
+                    && isConcurrent(operations.get(i), Set.of())
+                    && isConcurrent(operations.get(end), Set.of())) {
+                ++end;
+            }
+
+            if (end - i > 1) {
+                responses.addAll(handleConcurrently(operations.subList(i, end)));
+            } else {
+                responses.add(handleRequest(operations.get(i)));
+            }
+            i = end;
+        }
+
+        return responses;
+    }
+
+    /**
+     * Performs the queue within a single transaction: SQL operations share a connection per written database,
+     * consecutive single record writes of the same shape are sent as a JDBC batch, consecutive fetches
+     * that do not depend on the queued writes are performed concurrently, and the transaction is
+     * committed once, after the last operation.
+     *
+     * The first failure stops the queue and rolls back the whole transaction, the rest of the operations
+     * are responded with {@code STATUS_TRANSACTION_FAILED}.
+     */
+    protected Collection<DSResponse> dispatchTransaction(DSTransaction transaction) {
+        final List<DSRequest> operations = transaction.getOperations();
+        final DSResponse[] responses = new DSResponse[operations.size()];
+
+        /*
+         * Only databases that are written by the queue are enlisted, the fetch only ones
+         * are left to the read only (replica) connections
+         */
+        final Set<String> databases = new LinkedHashSet<>();
+        for (DSRequest r : operations) {
+            if (r.getOperationType() != null
+                    && r.getOperationType() != DSRequest.OperationType.FETCH
+                    && getHandlerByName(r.getDataSource()) instanceof JDBCHandler jdbcHandler) {
+                databases.add(jdbcHandler.getDataSource().getDbName());
+            }
+        }
+
+        final String[] failure = {null};
+        try {
+            jdbcPolicy.withTransactionDo(databases, tx -> {
+                for (int i = 0; i < operations.size() && failure[0] == null; ) {
+                    final boolean concurrent = isConcurrent(operations.get(i), databases);
+
+                    int end = i + 1;
+                    while (end < operations.size()
+                            && (concurrent ? isConcurrent(operations.get(end), databases) : isBatchable(operations.get(i), operations.get(end)))) {
+                        ++end;
+                    }
+
+                    if (end - i > 1) {
+                        final List<DSResponse> rs = concurrent ?
+                                handleConcurrently(operations.subList(i, end)) : handleBatch(operations.subList(i, end));
+                        for (int j = i; j < end; ++j) {
+                            responses[j] = rs.get(j - i);
+                        }
+                    } else {
+                        responses[i] = handleRequest(operations.get(i));
+                    }
+
+                    for (; i < end; ++i) {
+                        if (responses[i].getStatus() != DSResponse.STATUS_SUCCESS) {
+                            failure[0] = "operation #%d ('%s' on '%s') has failed"
+                                    .formatted(i, operations.get(i).getOperationType(), operations.get(i).getDataSource());
+                        }
+                    }
+                }
+
+                if (failure[0] != null) {
+                    tx.setRollbackOnly();
+                }
+                return null;
+            });
+        } catch (Throwable t) {
+            logger.error("Transaction %d has failed to complete.".formatted(transaction.getTransactionNum()), t);
+            failure[0] = "transaction has failed to complete: %s"
+                    .formatted(t.getMessage() == null ? t.getClass().getCanonicalName() : t.getMessage());
+        } finally {
+            /*
+             * Fetches performed by the other requests while the transaction was in progress
+             * may have cached the data that was changed at commit
+             */
+            operations.stream()
+                    .filter(DSDispatcher::isWrite)
+                    .map(DSRequest::getDataSource)
+                    .distinct()
+                    .forEach(this::invalidateFetchResults);
+        }
+
+        if (failure[0] != null) {
+            for (int i = 0; i < responses.length; ++i) {
+                if (responses[i] == null || responses[i].getStatus() == DSResponse.STATUS_SUCCESS) {
+                    responses[i] = DSResponse.transactionFailure("Transaction %d has been rolled back, %s.",
+                            transaction.getTransactionNum(), failure[0]);
+                    responses[i].setOperationId(operations.get(i).getOperationId());
+                }
+            }
+        }
+
+        return new LinkedList<>(Arrays.asList(responses));
+    }
+
+    /**
+     * A fetch does not depend on the other queued operations, unless its database is written by the queue:
+     * such a fetch is performed by the transaction connection, that is bound to the dispatching thread.
+     *
+     * @param databases databases written by the queue
+     */
+    protected boolean isConcurrent(DSRequest request, Set<String> databases) {
+        return request.getOperationType() == DSRequest.OperationType.FETCH
+                && getHandlerByName(request.getDataSource()) instanceof JDBCHandler jdbcHandler
+                && !databases.contains(jdbcHandler.getDataSource().getDbName());
+    }
+
+    /**
+     * Performs the requests concurrently, the dispatching thread takes the first one.
+     *
+     * @return responses in the order of the requests
+     */
+    protected List<DSResponse> handleConcurrently(List<DSRequest> requests) {
+        final ExecutorService executor = getQueueExecutor();
+        final List<DSResponse> responses = new ArrayList<>(requests.size());
+
+        if (executor == null) {
+            requests.forEach(r -> responses.add(handleRequest(r)));
+            return responses;
+        }
+
+        final QueryCancellation cancellation = QueryCancellation.current();
+        final List<Future<DSResponse>> futures = new ArrayList<>(requests.size() - 1);
+        for (DSRequest r : requests.subList(1, requests.size())) {
+            futures.add(executor.submit(() -> QueryCancellation.doWithin(cancellation, () -> handleRequest(r))));
+        }
+
+        responses.add(handleRequest(requests.get(0)));
+
+        for (int i = 0; i < futures.size(); ++i) {
+            DSResponse response;
+            try {
+                response = futures.get(i).get();
+            } catch (InterruptedException | CancellationException ex) {
+                Thread.currentThread().interrupt();
+                futures.forEach(f -> f.cancel(true));
+                response = DSResponse.failure("Request processing was interrupted.");
+            } catch (ExecutionException ex) {
+                logFailure(requests.get(i + 1), ex.getCause());
+                response = DSResponse.failure(ex.getCause().getMessage() == null ?
+                        ex.getCause().getClass().getCanonicalName() : ex.getCause().getMessage());
+            }
+
+            response.setOperationId(requests.get(i + 1).getOperationId());
             responses.add(response);
         }
 
         return responses;
     }
 
+    /**
+     * @return true if the request can be sent within the same JDBC batch as the head one
+     */
+    protected boolean isBatchable(DSRequest head, DSRequest request) {
+        if (head.getOperationType() == null
+                || head.getOperationType() == DSRequest.OperationType.FETCH
+                || !(getHandlerByName(head.getDataSource()) instanceof JDBCHandler)) {
+            return false;
+        }
+
+        return head.getDataSource().equals(request.getDataSource())
+                && head.getOperationType().equals(request.getOperationType())
+                && Objects.equals(head.getOperationId(), request.getOperationId())
+                && head.getData() instanceof Map<?, ?> headData
+                && request.getData() instanceof Map<?, ?> data
+                && headData.keySet().equals(data.keySet());
+    }
+
+    protected List<DSResponse> handleBatch(List<DSRequest> requests) {
+        final Bulkhead bulkhead = bulkheads.get(requests.get(0).getDataSource());
+        if (bulkhead != null && !bulkhead.tryEnter()) {
+            return requests.stream()
+                    .map(r -> rejected(r, bulkhead))
+                    .collect(Collectors.toList());
+        }
+
+        try {
+            final JDBCHandler handler = (JDBCHandler) getHandlerByName(requests.get(0).getDataSource());
+            final List<DSResponse> responses;
+            try {
+                responses = handler.handleBatch(requests);
+            } finally {
+                invalidateFetchResults(requests.get(0).getDataSource());
+            }
+
+            for (int i = 0; i < responses.size(); ++i) {
+                responses.get(i).setOperationId(requests.get(i).getOperationId());
+                logResponse(requests.get(i), responses.get(i));
+            }
+            return responses;
+        } catch (Throwable t) {
+            logFailure(requests.get(0), t);
+
+            final List<DSResponse> responses = new ArrayList<>(requests.size());
+            for (DSRequest r : requests) {
+                final DSResponse response = DSResponse.failure(t.getMessage() == null ? t.getClass().getCanonicalName() : t.getMessage());
+                response.setOperationId(r.getOperationId());
+                responses.add(response);
+            }
+            return responses;
+        } finally {
+            if (bulkhead != null) {
+                bulkhead.exit();
+            }
+        }
+    }
+
     public <A extends Appendable> A generateDSJavaScript(A out, String dispatcherUrl, String... dsId) throws Exception {
         out.append("const DISPATCHER_URL = \"%s\";\n"
                 .formatted(dispatcherUrl));
@@ -432,7 +874,28 @@ public class DSDispatcher implements IDSDispatcher {
 
     @Override
     public void registerHandler(IHandler handler) {
-        datasourceMap.put(handler.id(), handler);
+        final IHandler previous = datasourceMap.put(handler.id(), handler);
+
+        referringDataSources = null;
+
+        final Bulkhead bulkhead = handler instanceof DSHandler dsHandler ? Bulkhead.of(dsHandler.dataSource()) : null;
+        if (bulkhead == null) {
+            bulkheads.remove(handler.id());
+        } else {
+            bulkheads.put(handler.id(), bulkhead);
+        }
+
+        if (previous != null) {
+            /*
+             * Compiled fetch plans may include joins to the re-registered data source
+             */
+            for (IHandler h : datasourceMap.values()) {
+                if (h instanceof JDBCHandler jdbcHandler) {
+                    jdbcHandler.getFetchPlanCache().invalidate();
+                }
+            }
+        }
+
         logger.info("A new DSHandler has been registered as '%s' ".formatted(handler.id()));
     }
 
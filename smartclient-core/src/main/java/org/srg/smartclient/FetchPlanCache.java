@@ -0,0 +1,128 @@
+package org.srg.smartclient;
+
+import org.srg.smartclient.isomorphic.DSField;
+import org.srg.smartclient.isomorphic.DSRequest;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of the compiled fetch plans.
+ *
+ * Grids tend to send requests of the same shape (outputs, sort, criteria fields and operators) over and over
+ * again, only criteria values differ. The plan holds everything that depends on the request shape only:
+ * the final SQL text and the requested fields, so that the repeated requests only need to bind values.
+ *
+ * @see SQLFetchContext
+ */
+public class FetchPlanCache {
+    public static final int DEFAULT_MAX_SIZE = 256;
+
+    /**
+     * Request shape, criteria values must not be a part of the key.
+     *
+     * @param whereShape generated WHERE clause with placeholders instead of values,
+     *                   it reflects criteria fields, operators, textMatchStyle and null-ness of the values
+     * @param largePage page size affects the summary fields strategy
+     */
+    public record Key(
+            String dataSourceId,
+            String operationId,
+            String outputs,
+            String additionalOutputs,
+            List<String> sortBy,
+            DSRequest.TextMatchStyle textMatchStyle,
+            List<String> criteriaFields,
+            String whereShape,
+            boolean largePage
+    ) {}
+
+    public record Plan(
+            List<DSField> requestedFields,
+            Map<DSField, List<RelationSupport.ForeignRelation>> additionalOutputs,
+            String selectClause,
+            String fromClause,
+            String joinClause,
+            String whereClause,
+            String orderClause,
+            String genericQuery,
+            SQLFetchContext.FlatQuery flatQuery,
+            List<DSField> groupedSummaryFields,
+            SQLFetchContext.RowLayout rowLayout
+    ) {}
+
+    private final int maxSize;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final Map<Key, Plan> plans;
+
+    public FetchPlanCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public FetchPlanCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.plans = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Plan> eldest) {
+                return size() > FetchPlanCache.this.maxSize;
+            }
+        };
+    }
+
+    public Plan get(Key key) {
+        final Plan plan;
+        synchronized (plans) {
+            plan = plans.get(key);
+        }
+
+        if (plan == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return plan;
+    }
+
+    public void put(Key key, Plan plan) {
+        if (maxSize <= 0) {
+            return;
+        }
+
+        synchronized (plans) {
+            plans.put(key, plan);
+        }
+    }
+
+    public void invalidate() {
+        synchronized (plans) {
+            plans.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (plans) {
+            return plans.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public String toString() {
+        return "FetchPlanCache{" +
+                "size=" + size() +
+                ", maxSize=" + maxSize +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                '}';
+    }
+}
@@ -0,0 +1,235 @@
+package org.srg.smartclient;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.srg.smartclient.isomorphic.DSField;
+import org.srg.smartclient.isomorphic.DSRequest;
+import org.srg.smartclient.isomorphic.DSResponse;
+import org.srg.smartclient.isomorphic.DSResponseDataContainer;
+import org.srg.smartclient.utils.Serde;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of the fetch responses of a single data source, entries expire after the configured TTL.
+ *
+ * Reference grids and pick lists send exactly the same fetches over and over again, unlike {@link FetchPlanCache}
+ * the key includes the criteria values and the requested page, therefore a hit does not touch the database at all.
+ *
+ * The cache does not track the changes itself, the dispatcher calls {@link #invalidate()} on writes,
+ * see {@link DSDispatcher#invalidateFetchResults(String)}. A response fetched concurrently with the invalidation
+ * is not stored, see {@link #generation()}.
+ */
+public class FetchResultCache {
+    public static final int DEFAULT_MAX_SIZE = 256;
+    public static final long DEFAULT_TTL_MILLIS = 60000;
+
+    /**
+     * Normalized request, everything that affects the fetched rows.
+     *
+     * @param criteria criteria serialized with the sorted map keys, null if there is no criteria
+     */
+    public record Key(
+            String dataSourceId,
+            String operationId,
+            String outputs,
+            String additionalOutputs,
+            List<String> sortBy,
+            DSRequest.TextMatchStyle textMatchStyle,
+            int startRow,
+            int endRow,
+            String criteria
+    ) {
+        public static Key of(DSRequest request) {
+            final String criteria;
+            if (request.getData() == null
+                    || (request.getData() instanceof Map<?, ?> m && m.isEmpty())) {
+                criteria = null;
+            } else {
+                try {
+                    criteria = Serde.serializeCanonically(request.getData());
+                } catch (JsonProcessingException ex) {
+                    throw new IllegalStateException("Data source '%s': can't normalize the fetch criteria."
+                            .formatted(request.getDataSource()), ex);
+                }
+            }
+
+            return new Key(
+                    request.getDataSource(),
+                    request.getOperationId(),
+                    request.getOutputs(),
+                    request.getAdditionalOutputs(),
+                    request.getSortBy() == null ? null : List.copyOf(request.getSortBy()),
+                    request.getTextMatchStyle(),
+                    request.getStartRow(),
+                    request.getEndRow(),
+                    criteria
+            );
+        }
+    }
+
+    /**
+     * @param evictions number of entries removed because of the size limit or the expired TTL
+     * @param invalidations number of the {@link #invalidate()} calls
+     */
+    public record Metrics(
+            String dataSource,
+            int size,
+            int maxSize,
+            long hits,
+            long misses,
+            long evictions,
+            long invalidations
+    ) {}
+
+    private record CachedResponse(
+            int startRow,
+            int endRow,
+            int totalRows,
+            Iterable<DSField> fields,
+            Collection<Object[]> data,
+            long expiresAt
+    ) {}
+
+    private final String dataSource;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final Map<Key, CachedResponse> entries;
+
+    // guarded by entries
+    private long generation;
+
+    public FetchResultCache(String dataSource) {
+        this(dataSource, DEFAULT_MAX_SIZE, DEFAULT_TTL_MILLIS);
+    }
+
+    public FetchResultCache(String dataSource, int maxSize, long ttlMillis) {
+        this.dataSource = dataSource;
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedResponse> eldest) {
+                if (size() > FetchResultCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Must be obtained before the response is fetched and passed to {@link #put(Key, DSResponse, long)}.
+     */
+    public long generation() {
+        synchronized (entries) {
+            return generation;
+        }
+    }
+
+    /**
+     * @return a new response instance on every call, since the dispatcher sets the per-request properties on it,
+     *          or null if there is no valid entry
+     */
+    public DSResponse get(Key key) {
+        final CachedResponse entry;
+        synchronized (entries) {
+            final CachedResponse e = entries.get(key);
+            if (e != null && e.expiresAt() - System.nanoTime() <= 0) {
+                entries.remove(key);
+                evictions.incrementAndGet();
+                entry = null;
+            } else {
+                entry = e;
+            }
+        }
+
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        hits.incrementAndGet();
+        return DSResponse.successFetch(entry.startRow(), entry.endRow(), entry.totalRows(), entry.fields(), entry.data());
+    }
+
+    /**
+     * Only successful responses with the rows read into memory are stored, the streamed ones are read
+     * from the database on iteration, therefore there is nothing to cache.
+     *
+     * @param generation obtained by {@link #generation()} before the response has been fetched,
+     *                   the response is not stored if the cache has been invalidated since then
+     */
+    public void put(Key key, DSResponse response, long generation) {
+        if (maxSize <= 0
+                || response.getStatus() != DSResponse.STATUS_SUCCESS
+                || response.getData() == null
+                || response.getData().getResponseType() != DSResponseDataContainer.ResponseType.RAW
+                || !(response.getData().getRawDataResponse().getData() instanceof Collection<Object[]> data)) {
+            return;
+        }
+
+        final CachedResponse entry = new CachedResponse(
+                response.getStartRow() == null ? 0 : response.getStartRow(),
+                response.getEndRow() == null ? 0 : response.getEndRow(),
+                response.getTotalRows() == null ? -1 : response.getTotalRows(),
+                response.getData().getRawDataResponse().getFields(),
+                data,
+                System.nanoTime() + ttlNanos
+        );
+
+        synchronized (entries) {
+            if (this.generation == generation) {
+                entries.put(key, entry);
+            }
+        }
+    }
+
+    public void invalidate() {
+        synchronized (entries) {
+            entries.clear();
+            ++generation;
+        }
+        invalidations.incrementAndGet();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public Metrics getMetrics() {
+        return new Metrics(
+                dataSource,
+                size(),
+                maxSize,
+                hits.get(),
+                misses.get(),
+                evictions.get(),
+                invalidations.get()
+        );
+    }
+
+    @Override
+    public String toString() {
+        return "FetchResultCache{" +
+                "dataSource=" + dataSource +
+                ", size=" + size() +
+                ", maxSize=" + maxSize +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", evictions=" + evictions +
+                ", invalidations=" + invalidations +
+                '}';
+    }
+}
@@ -9,10 +9,13 @@ import org.srg.smartclient.isomorphic.criteria.OperatorId;
 import org.srg.smartclient.utils.ContextualRuntimeException;
 import org.srg.smartclient.utils.Utils;
 
+import java.io.IOException;
 import java.sql.*;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import static org.srg.smartclient.isomorphic.DSField.FieldType.TEXT;
@@ -22,19 +25,92 @@ public class JDBCHandler extends AbstractDSHandler {
     public interface JDBCPolicy {
         // http://java.avdiel.com/Tutorials/JDBCPaging.html
         void withConnectionDo(String database, Utils.CheckedFunction<Connection, Void> callback) throws Exception;
+
+        /**
+         * Provides a connection for a read only operation (FETCH that is not a part of a write),
+         * it may be served by a read replica of the database.
+         */
+        default void withReadOnlyConnectionDo(String database, Utils.CheckedFunction<Connection, Void> callback) throws Exception {
+            withConnectionDo(database, callback);
+        }
     }
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     private final JDBCPolicy policy;
 
+    private final FetchPlanCache fetchPlanCache = new FetchPlanCache();
+
+    private final KeysetCursorCache keysetCursorCache = new KeysetCursorCache();
+
+    private final FetchResultCache fetchResultCache;
+
+    /**
+     * Alias of the column that carries the total rows, when {@link DataSource.TotalRowsMode#WINDOW_FUNCTION} is in use
+     */
+    protected static final String TOTAL_ROWS_COLUMN = "total_rows_";
+
+    private volatile Boolean windowFunctionSupported;
+
+    /**
+     * Row post-processing hooks are called per row/cell, it is not worth it unless they are overridden.
+     */
+    private final boolean postProcessFieldValueOverridden = isOverridden(getClass(), "postProcessFieldValue",
+            SQLFetchContext.class, Map.class, DSField.class, Object.class);
+    private final boolean postProcessRowOverridden = isOverridden(getClass(), "postProcessRow",
+            SQLFetchContext.class, Object[].class);
+
     public JDBCHandler(JDBCPolicy jdbcPolicy, IDSRegistry dsRegistry, DataSource datasource) {
         super(dsRegistry, datasource);
         policy = jdbcPolicy;
+        fetchResultCache = new FetchResultCache(
+                datasource.getId(),
+                datasource.getCacheMaxEntries() == null ? FetchResultCache.DEFAULT_MAX_SIZE : datasource.getCacheMaxEntries(),
+                datasource.getCacheTtlMillis() == null ? FetchResultCache.DEFAULT_TTL_MILLIS : datasource.getCacheTtlMillis()
+        );
+
+        if (datasource.getOperationBindings() != null) {
+            for (OperationBinding ob : datasource.getOperationBindings()) {
+                try {
+                    SQLTemplateEngine.precompile(ob.getCustomSQL(), ob.getWhereClause(), ob.getTableClause(), ob.getAnsiJoinClause());
+                } catch (IOException e) {
+                    throw new RuntimeException("DataSource '%s': failed to compile SQL templates of the operation binding '%s'."
+                            .formatted(datasource.getId(), ob.getOperationId()), e);
+                }
+            }
+        }
+    }
+
+    private static boolean isOverridden(Class<?> clazz, String name, Class<?>... parameterTypes) {
+        for (Class<?> c = clazz; c != null && !c.equals(JDBCHandler.class); c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod(name, parameterTypes);
+                return true;
+            } catch (NoSuchMethodException e) {
+                // check the superclass
+            }
+        }
+        return false;
+    }
+
+    public FetchPlanCache getFetchPlanCache() {
+        return fetchPlanCache;
+    }
+
+    public KeysetCursorCache getKeysetCursorCache() {
+        return keysetCursorCache;
+    }
+
+    public FetchResultCache getFetchResultCache() {
+        return fetchResultCache;
     }
 
     @Override
     protected DSResponse handleUpdate(DSRequest request) throws Exception {
+        if (request.getData() instanceof DSRequest.ListData records) {
+            return handleBatch(request, records);
+        }
+
         if (! (request.getData() instanceof Map)) {
             throw new RuntimeException("Bad request: operation 'UPDATE', the map of modified and PK fields " +
                     "must be provided in the  'data' field.");
@@ -50,6 +126,7 @@ public class JDBCHandler extends AbstractDSHandler {
         policy.withConnectionDo(this.getDataSource().getDbName(), conn-> {
 
             try (PreparedStatement st = conn.prepareStatement(sqlUpdateContext.getUpdateSQL(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                configureStatement(st, operationBinding);
                 int idx =0;
 
                 final List<IFilterData> l = sqlUpdateContext.getModifiedData();
@@ -83,7 +160,17 @@ public class JDBCHandler extends AbstractDSHandler {
              *
              * The first option is more durable, since it will handle all side effects like calculated fields? operation bindings
              * with respect of security rules tat can be affected by side effects.
+             *
+             * The second one is used if all the returned fields are plain columns of the updated table.
              */
+            final List<DSField> mergeableFields = determineMergeableUpdateOutputs(request, operationBinding);
+            if (mergeableFields != null) {
+                conn.commit();
+                response[0] = DSResponse.success(
+                        DSResponseDataContainer.createRaw(mergeableFields, Collections.singletonList(mergeUpdatedRow(request, mergeableFields)))
+                );
+                return null;
+            }
 
 
             final DSRequest fr = new DSRequest();
@@ -121,13 +208,113 @@ public class JDBCHandler extends AbstractDSHandler {
         return DSResponse.success(fetchRespone.getData());
     }
 
+    /**
+     * @return fields to be returned by the update response, or null if the updated row must be re-fetched
+     *          to populate them (includeFrom, calculated, sub-entity fields or customized fetch query),
+     *          or to pass them through the overridden row post-processing hooks
+     */
+    protected List<DSField> determineMergeableUpdateOutputs(DSRequest request, OperationBinding operationBinding) {
+        if (request.getOldValues() == null
+                || postProcessFieldValueOverridden
+                || postProcessRowOverridden) {
+            return null;
+        }
+
+        if (operationBinding != null
+                && Stream.of(
+                        operationBinding.getCustomSQL(),
+                        operationBinding.getTableClause(),
+                        operationBinding.getAnsiJoinClause(),
+                        operationBinding.getWhereClause()
+                    )
+                    .anyMatch(c -> c != null && !c.isBlank())) {
+            return null;
+        }
+
+        final List<DSField> fields = new ArrayList<>(request.getOldValues().size());
+        for (String fn : request.getOldValues().keySet()) {
+            if (fn.startsWith(getMetaDataPrefix())) {
+                continue;
+            }
+
+            final DSField dsf = getField(fn);
+            if (dsf == null
+                    || dsf.isIncludeField()
+                    || dsf.isCustomSQL()
+                    || dsf.isMultiple()
+                    || DSField.FieldType.ENTITY.equals(dsf.getType())
+                    || isSubEntityFetchRequired(dsf)) {
+                return null;
+            }
+            fields.add(dsf);
+        }
+
+        return fields;
+    }
+
+    /**
+     * Old values overridden by the modified ones
+     */
+    protected Object[] mergeUpdatedRow(DSRequest request, List<DSField> fields) {
+        final Map<?, ?> data = (Map<?, ?>) request.getData();
+        final Object[] row = new Object[fields.size()];
+
+        int i = 0;
+        for (DSField dsf : fields) {
+            row[i++] = data.containsKey(dsf.getName()) ?
+                    data.get(dsf.getName()) : request.getOldValues().get(dsf.getName());
+        }
+        return row;
+    }
+
     @Override
     protected DSResponse handleFetch(DSRequest request) throws Exception {
+        if (!(request instanceof StickyDBDSRequest)) {
+            final OperationBinding operationBinding = getEffectiveOperationBinding(DSRequest.OperationType.FETCH, request.getOperationId());
+
+            final boolean isExport = Boolean.TRUE.equals(request.getExportResults());
+
+            final boolean writtenByTransaction = isWrittenByCurrentTransaction();
+
+            if (!isExport && isCacheResults(operationBinding) && !writtenByTransaction) {
+                return doHandleCachedFetch(request);
+            }
+
+            /*
+             * The total of a streamed page is calculated upfront by a COUNT query, progressive loading,
+             * COUNT(*) OVER() and keyset pagination rely on the fetched rows, therefore such pages are not streamed.
+             */
+            final boolean streamResults = isStreamResults(operationBinding)
+                    && !isProgressiveLoading(operationBinding)
+                    && !isKeysetPagination(operationBinding)
+                    && determineTotalRowsMode(operationBinding) == DataSource.TotalRowsMode.COUNT_QUERY;
+
+            /*
+             * Streamed rows are read after the request is handled, when the transaction is completed already
+             * and its connection is not available, therefore the rows would not include its own writes.
+             * Also the dispatcher's concurrency limit is released by then, so it would not cover the reading.
+             */
+            if ((isExport || streamResults)
+                    && !writtenByTransaction
+                    && !Bulkhead.isLimited(getDataSource())) {
+                final SQLFetchContext<JDBCHandler> sqlFetchContext = new SQLFetchContext<>(this, request, operationBinding);
+
+                /*
+                 * Sub-entities and grouped summaries are fetched in batches after the whole page is read,
+                 * therefore such requests can't be streamed.
+                 */
+                if (sqlFetchContext.getRequestedFields().stream().noneMatch(AbstractDSHandler::isSubEntityFetchRequired)
+                        && sqlFetchContext.getGroupedSummaryFields().isEmpty()) {
+                    return isExport ? doHandleExport(sqlFetchContext) : doHandleStreamingFetch(sqlFetchContext);
+                }
+            }
+        }
+
         final DSResponse[] r = {null};
         if (request instanceof StickyDBDSRequest sdbRequest) {
             r[0] = doHandleFetch(request, sdbRequest.connection(), true);
         } else {
-            policy.withConnectionDo(this.getDataSource().getDbName(), conn -> {
+            policy.withReadOnlyConnectionDo(this.getDataSource().getDbName(), conn -> {
                 r[0] = doHandleFetch(request, conn, true);
                 return null;
             });
@@ -138,6 +325,10 @@ public class JDBCHandler extends AbstractDSHandler {
 
     @Override
     protected DSResponse handleAdd(DSRequest request) throws Exception {
+        if (request.getData() instanceof DSRequest.ListData records) {
+            return handleBatch(request, records);
+        }
+
         if (! (request.getData() instanceof Map)) {
             throw new RuntimeException("Bad request: operation 'ADD', the map of modified and PK fields " +
                     "must be provided in the  'data' field.");
@@ -146,13 +337,35 @@ public class JDBCHandler extends AbstractDSHandler {
         final OperationBinding operationBinding = getEffectiveOperationBinding(DSRequest.OperationType.FETCH, request.getOperationId());
         final SQLAddContext<JDBCHandler> sqlAddContext = new SQLAddContext<>(this, request, operationBinding);
 
+        /*
+         * PK values that are not provided by the client are expected to be generated by the database
+         */
+        final Map<String, Object> pkValues = new HashMap<>();
+        final List<DSField> generatedPkFields = new ArrayList<>(1);
+        for (DSField pk : getDataSource().getPKFields()) {
+            final Object v = ((Map<?, ?>) request.getData()).get(pk.getName());
+            if (v != null) {
+                pkValues.put(pk.getName(), v);
+            } else {
+                generatedPkFields.add(pk);
+            }
+        }
 
         // --
         final DSResponse[] response = {null};
 
         policy.withConnectionDo(this.getDataSource().getDbName(), conn-> {
 
-            try (PreparedStatement st = conn.prepareStatement(sqlAddContext.getAddSQL())) {
+            /*
+             * Drivers implement generated keys natively, or by appending RETURNING
+             * clause to the statement for the databases that support it (PostgreSQL)
+             */
+            try (PreparedStatement st = generatedPkFields.isEmpty() ?
+                    conn.prepareStatement(sqlAddContext.getAddSQL())
+                    : conn.prepareStatement(sqlAddContext.getAddSQL(), generatedPkFields.stream()
+                            .map(DSField::getDbName)
+                            .toArray(String[]::new))) {
+                configureStatement(st, operationBinding);
                 int idx =0;
 
                 final List<IFilterData> l = sqlAddContext.getFilterData();
@@ -166,6 +379,26 @@ public class JDBCHandler extends AbstractDSHandler {
                     // There is no added/affected records
                     throw new RuntimeException("Zero rows were added.");
                 }
+
+                if (!generatedPkFields.isEmpty()) {
+                    try (ResultSet rs = st.getGeneratedKeys()) {
+                        if (!rs.next()) {
+                            /*
+                             * The added row can not be re-fetched without its PK
+                             */
+                            throw new RuntimeException("Generated keys do not match the added row of the statement:\n%s"
+                                    .formatted(sqlAddContext.getAddSQL()));
+                        }
+
+                        if (generatedPkFields.size() == 1) {
+                            pkValues.put(generatedPkFields.get(0).getName(), rs.getObject(1));
+                        } else {
+                            for (DSField pk : generatedPkFields) {
+                                pkValues.put(pk.getName(), rs.getObject(pk.getDbName()));
+                            }
+                        }
+                    }
+                }
             } catch (Throwable t) {
                 conn.rollback();
                 throw new ContextualRuntimeException("SQL add query execution failed.", t, sqlAddContext);
@@ -178,6 +411,8 @@ public class JDBCHandler extends AbstractDSHandler {
              *
              * The first option is more durable, since it will handle all side effects like calculated fields? operation bindings
              * with respect of security rules tat can be affected by side effects.
+             *
+             * Only the added row is fetched by its PK, the whole table is fetched only if the data source has no PK at all.
              */
 
 
@@ -187,6 +422,11 @@ public class JDBCHandler extends AbstractDSHandler {
             fr.setOperationId(request.getOperationId());
             fr.setComponentId(request.getComponentId());
 
+            if (!pkValues.isEmpty() && pkValues.size() == getDataSource().getPKFields().size()) {
+                fr.setTextMatchStyle(DSRequest.TextMatchStyle.EXACT);
+                fr.wrapAndSetData(pkValues);
+            }
+
             final DSResponse r =  doHandleFetch(fr, conn, false);
 
             if (r.getStatus() == DSResponse.STATUS_SUCCESS ) {
@@ -208,6 +448,357 @@ public class JDBCHandler extends AbstractDSHandler {
         return DSResponse.success(fetchRespone.getData());
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    protected DSResponse handleRemove(DSRequest request) throws Exception {
+        if (request.getData() instanceof DSRequest.ListData records) {
+            return handleBatch(request, records);
+        }
+
+        if (! (request.getData() instanceof Map)) {
+            throw new RuntimeException("Bad request: operation 'REMOVE', the map of PK fields " +
+                    "must be provided in the  'data' field.");
+        }
+
+        return handleBatch(request, List.of((Map<String, Object>) request.getData()));
+    }
+
+    /**
+     * A single record statement of the batch
+     *
+     * @param generatedPkFields PK fields that are not provided and expected to be generated by the database (ADD)
+     */
+    private record BatchEntry(
+            String sql,
+            List<IFilterData> parameters,
+            Map<String, Object> pkValues,
+            List<DSField> generatedPkFields
+    ) {}
+
+    /**
+     * Handles multiple records ADD/UPDATE/REMOVE within a single transaction: records of the same SQL shape
+     * share a prepared statement and are sent by {@link PreparedStatement#executeBatch()}, then the affected rows
+     * are re-fetched by PK at once (except REMOVE, that returns the PKs of the removed rows).
+     */
+    protected DSResponse handleBatch(DSRequest request, List<Map<String, Object>> records) throws Exception {
+        final List<DSRequest> requests = new ArrayList<>(records.size());
+
+        for (Map<String, Object> record : records) {
+            final DSRequest r = new DSRequest();
+            r.setDataSource(request.getDataSource());
+            r.setOperationType(request.getOperationType());
+            r.setOperationId(request.getOperationId());
+            r.setComponentId(request.getComponentId());
+            r.wrapAndSetData(record);
+            requests.add(r);
+        }
+
+        final OperationBinding operationBinding = getEffectiveOperationBinding(DSRequest.OperationType.FETCH, request.getOperationId());
+        final List<BatchEntry> entries = createBatchEntries(requests, operationBinding);
+        final DSResponse[] response = {null};
+
+        policy.withConnectionDo(this.getDataSource().getDbName(), conn -> {
+            executeBatches(conn, request, entries, operationBinding);
+
+            final DSResponse r = fetchBatchResult(request, conn, entries);
+
+            if (r.getStatus() == DSResponse.STATUS_SUCCESS ) {
+                conn.commit();
+            } else {
+                conn.rollback();
+            }
+
+            response[0] = r;
+            return null;
+        });
+
+        final DSResponse fetchRespone = response[0];
+
+        if (fetchRespone.getStatus() != DSResponse.STATUS_SUCCESS) {
+            return fetchRespone;
+        }
+
+        return DSResponse.success(fetchRespone.getData());
+    }
+
+    /**
+     * Handles a sequence of single record requests, that differ by the data only (e.g. coalesced from the queue),
+     * as a single batch.
+     *
+     * @return a response per request, in the same order
+     */
+    protected List<DSResponse> handleBatch(List<DSRequest> requests) throws Exception {
+        final DSRequest head = requests.get(0);
+
+        for (DSRequest r : requests) {
+            if (!head.getOperationType().equals(r.getOperationType())
+                    || !Objects.equals(head.getOperationId(), r.getOperationId())
+                    || !(r.getData() instanceof Map)) {
+                throw new IllegalStateException("DataSource '%s': requests of different shapes can't be batched together."
+                        .formatted(getDataSource().getId()));
+            }
+        }
+
+        final OperationBinding operationBinding = getEffectiveOperationBinding(DSRequest.OperationType.FETCH, head.getOperationId());
+        final List<BatchEntry> entries = createBatchEntries(requests, operationBinding);
+        final List<DSResponse> responses = new ArrayList<>(requests.size());
+
+        policy.withConnectionDo(this.getDataSource().getDbName(), conn -> {
+            executeBatches(conn, head, entries, operationBinding);
+
+            final DSResponse r = fetchBatchResult(head, conn, entries);
+            if (r.getStatus() != DSResponse.STATUS_SUCCESS) {
+                conn.rollback();
+                requests.forEach(ignored -> responses.add(r));
+                return null;
+            }
+
+            conn.commit();
+
+            // -- scatter the fetched rows back to the requests by PK
+            final DSResponseDataContainer.RawDataResponse raw = r.getData().getRawDataResponse();
+            final List<DSField> fields = new ArrayList<>();
+            raw.getFields().forEach(fields::add);
+
+            final List<DSField> pkFields = new ArrayList<>(getDataSource().getPKFields());
+            final int[] pkIdx = pkFields.stream()
+                    .mapToInt(pk -> {
+                        for (int i = 0; i < fields.size(); ++i) {
+                            if (fields.get(i).getName().equals(pk.getName())) {
+                                return i;
+                            }
+                        }
+                        return -1;
+                    })
+                    .toArray();
+
+            if (Arrays.stream(pkIdx).anyMatch(idx -> idx < 0)) {
+                throw new IllegalStateException("DataSource '%s': batch result can't be split, PK fields were not fetched."
+                        .formatted(getDataSource().getId()));
+            }
+
+            final Map<List<Object>, Object[]> rowsByPk = new HashMap<>();
+            for (Object[] row : raw.getData()) {
+                rowsByPk.put(Arrays.stream(pkIdx)
+                        .mapToObj(idx -> EntitySubFetch.normalizeKey(row[idx]))
+                        .collect(Collectors.toList()), row);
+            }
+
+            for (BatchEntry e : entries) {
+                final Object[] row = rowsByPk.get(pkFields.stream()
+                        .map(pk -> EntitySubFetch.normalizeKey(e.pkValues().get(pk.getName())))
+                        .collect(Collectors.toList()));
+
+                responses.add(DSResponse.success(
+                        DSResponseDataContainer.createRaw(fields, row == null ? List.of() : Collections.singletonList(row))
+                ));
+            }
+            return null;
+        });
+
+        return responses;
+    }
+
+    /**
+     * All the requests must share the same operation binding, the same one must be used to execute the entries.
+     */
+    private List<BatchEntry> createBatchEntries(List<DSRequest> requests, OperationBinding operationBinding) throws Exception {
+        final List<BatchEntry> entries = new ArrayList<>(requests.size());
+
+        for (DSRequest r : requests) {
+            final DSRequest.OperationType operationType = r.getOperationType();
+
+            @SuppressWarnings("unchecked")
+            final Map<String, Object> record = (Map<String, Object>) r.getData();
+
+            entries.add(switch (operationType) {
+                case ADD -> {
+                    final SQLAddContext<JDBCHandler> ctx = new SQLAddContext<>(this, r, operationBinding);
+
+                    final Map<String, Object> pkValues = new HashMap<>();
+                    final List<DSField> generatedPkFields = new ArrayList<>(1);
+                    for (DSField pk : getDataSource().getPKFields()) {
+                        final Object v = record.get(pk.getName());
+                        if (v != null) {
+                            pkValues.put(pk.getName(), v);
+                        } else {
+                            generatedPkFields.add(pk);
+                        }
+                    }
+                    yield new BatchEntry(ctx.getAddSQL(), ctx.getFilterData(), pkValues, generatedPkFields);
+                }
+
+                case UPDATE -> {
+                    final SQLUpdateContext<JDBCHandler> ctx = new SQLUpdateContext<>(this, r, operationBinding);
+
+                    final List<IFilterData> parameters = new ArrayList<>(ctx.getModifiedData());
+                    parameters.addAll(ctx.getPkFieldData());
+                    yield new BatchEntry(ctx.getUpdateSQL(), parameters, ctx.getPkValues(), List.of());
+                }
+
+                case REMOVE -> {
+                    final SQLRemoveContext<JDBCHandler> ctx = new SQLRemoveContext<>(this, r, operationBinding);
+                    yield new BatchEntry(ctx.getRemoveSQL(), ctx.getPkFieldData(), ctx.getPkValues(), List.of());
+                }
+
+                default -> throw new IllegalStateException("DataSource '%s': operation '%s' can't be batched."
+                        .formatted(getDataSource().getId(), operationType));
+            });
+        }
+
+        return entries;
+    }
+
+    /**
+     * Runs of consecutive entries of the same SQL shape are sent as a single batch, the statements are executed
+     * in the original order, since the records may depend on each other (the same row updated several times,
+     * parent and child rows added). The connection is rolled back on failure.
+     */
+    private void executeBatches(Connection conn, DSRequest request, List<BatchEntry> entries, OperationBinding operationBinding) throws SQLException {
+        final List<List<BatchEntry>> batches = new ArrayList<>();
+        BatchEntry previous = null;
+        for (BatchEntry entry : entries) {
+            if (previous == null
+                    || !previous.sql().equals(entry.sql())
+                    || !previous.generatedPkFields().equals(entry.generatedPkFields())) {
+                batches.add(new ArrayList<>());
+            }
+            batches.get(batches.size() - 1).add(entry);
+            previous = entry;
+        }
+
+        try {
+            for (List<BatchEntry> batch : batches) {
+                executeBatch(conn, batch, operationBinding);
+            }
+        } catch (Throwable t) {
+            conn.rollback();
+            throw new ContextualRuntimeException("SQL %s batch execution failed.".formatted(request.getOperationType()), t, entries);
+        }
+    }
+
+    /**
+     * @return re-fetched rows for ADD/UPDATE, PKs of the removed rows for REMOVE
+     */
+    private DSResponse fetchBatchResult(DSRequest request, Connection conn, List<BatchEntry> entries) throws Exception {
+        if (request.getOperationType() == DSRequest.OperationType.REMOVE) {
+            final List<DSField> pkFields = new ArrayList<>(getDataSource().getPKFields());
+            final List<Object[]> data = new ArrayList<>(entries.size());
+            for (BatchEntry e : entries) {
+                data.add(pkFields.stream()
+                        .map(pk -> e.pkValues().get(pk.getName()))
+                        .toArray());
+            }
+            return DSResponse.successFetch(0, data.size(), pkFields, data);
+        }
+
+        return fetchByPks(request, conn, entries.stream()
+                .map(BatchEntry::pkValues)
+                .collect(Collectors.toList()));
+    }
+
+    private void executeBatch(Connection conn, List<BatchEntry> batch, OperationBinding operationBinding) throws SQLException {
+        final BatchEntry head = batch.get(0);
+
+        try (PreparedStatement st = head.generatedPkFields().isEmpty() ?
+                conn.prepareStatement(head.sql())
+                : conn.prepareStatement(head.sql(), head.generatedPkFields().stream()
+                        .map(DSField::getDbName)
+                        .toArray(String[]::new))) {
+            configureStatement(st, operationBinding);
+
+            for (BatchEntry e : batch) {
+                int idx = 0;
+                for (IFilterData fd : e.parameters()) {
+                    idx = fd.setStatementParameters(idx, st);
+                }
+                st.addBatch();
+            }
+
+            final int[] counts = st.executeBatch();
+            for (int c : counts) {
+                if (c == 0) {
+                    // There is no affected records
+                    throw new RuntimeException("Zero rows were affected by the batched statement:\n%s"
+                            .formatted(head.sql()));
+                }
+            }
+
+            if (!head.generatedPkFields().isEmpty()) {
+                try (ResultSet rs = st.getGeneratedKeys()) {
+                    int keys = 0;
+                    for (BatchEntry e : batch) {
+                        if (!rs.next()) {
+                            break;
+                        }
+                        ++keys;
+
+                        if (e.generatedPkFields().size() == 1) {
+                            e.pkValues().put(e.generatedPkFields().get(0).getName(), rs.getObject(1));
+                        } else {
+                            for (DSField pk : e.generatedPkFields()) {
+                                e.pkValues().put(pk.getName(), rs.getObject(pk.getDbName()));
+                            }
+                        }
+                    }
+
+                    if (keys != batch.size() || rs.next()) {
+                        /*
+                         * Rows can not be matched with their generated keys, therefore they can not be re-fetched
+                         */
+                        throw new RuntimeException("Generated keys do not match the %d batched row(s) of the statement:\n%s"
+                                .formatted(batch.size(), head.sql()));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Fetches the rows by the provided PK values, a non-composite PK is fetched by IN queries
+     * (up to {@link EntitySubFetch#BATCH_SIZE} keys per query), a composite one -- row by row.
+     */
+    protected DSResponse fetchByPks(DSRequest request, Connection conn, List<Map<String, Object>> pkValues) throws Exception {
+        final List<Map<String, Object>> criteria = new ArrayList<>();
+
+        if (getDataSource().getPKFields().size() == 1) {
+            final String pkName = getDataSource().getNonCompositePK().getName();
+            final List<Object> keys = pkValues.stream()
+                    .map(m -> m.get(pkName))
+                    .collect(Collectors.toList());
+
+            for (int from = 0; from < keys.size(); from += EntitySubFetch.BATCH_SIZE) {
+                criteria.add(Map.of(pkName, keys.subList(from, Math.min(from + EntitySubFetch.BATCH_SIZE, keys.size()))));
+            }
+        } else {
+            criteria.addAll(pkValues);
+        }
+
+        Iterable<DSField> fields = null;
+        final List<Object[]> data = new ArrayList<>(pkValues.size());
+
+        for (Map<String, Object> c : criteria) {
+            final DSRequest fr = new DSRequest();
+            fr.setDataSource(request.getDataSource());
+            fr.setOperationType(DSRequest.OperationType.FETCH);
+            fr.setOperationId(request.getOperationId());
+            fr.setComponentId(request.getComponentId());
+            fr.setTextMatchStyle(DSRequest.TextMatchStyle.EXACT);
+            fr.wrapAndSetData(c);
+
+            final DSResponse r = doHandleFetch(fr, conn, false);
+            if (r.getStatus() != DSResponse.STATUS_SUCCESS) {
+                return r;
+            }
+
+            final DSResponseDataContainer.RawDataResponse raw = r.getData().getRawDataResponse();
+            fields = raw.getFields();
+            raw.getData().forEach(data::add);
+        }
+
+        return DSResponse.successFetch(0, data.size(), fields == null ? List.of() : fields, data);
+    }
+
     private static class StickyDBDSRequest extends DSRequest {
         private final Connection connection;
 
@@ -223,6 +814,11 @@ public class JDBCHandler extends AbstractDSHandler {
     private static class EntitySubFetch {
         private static final Logger logger = LoggerFactory.getLogger(EntitySubFetch.class);
 
+        /**
+         * Max number of key values sent within a single IN clause
+         */
+        private static final int BATCH_SIZE = 500;
+
         private final Map<String, Object> primaryKeys;
         private final DSField dsf;
         private final ForeignKeyRelation foreignKeyRelation;
@@ -290,30 +886,17 @@ public class JDBCHandler extends AbstractDSHandler {
                     rowPkValues, useSimpleCriteria);
         }
 
-        protected DSResponse fetchForeignEntity(Connection connection, ForeignKeyRelation foreignKeyRelation, String outputs, IDSRequestData criteria) throws Exception {
-            logger.debug("Performing foreign fetch for relation '%s' with criteria: %s"
-                    .formatted(
-                            foreignKeyRelation,
-                            criteria
-                    )
-            );
-
+        protected DSHandler getForeignHandler(ForeignKeyRelation foreignKeyRelation) {
             final DSHandler dsHandler = this.idsRegistry.getDataSourceHandlerById(foreignKeyRelation.foreign().dataSourceId());
             if (dsHandler == null) {
                 throw new RuntimeException( "Foreign data source handler with id '%s' is not registered."
                         .formatted(foreignKeyRelation.foreign().dataSourceId())
                 );
             }
+            return dsHandler;
+        }
 
-            /*
-             * Create sticky request to re-use the same DB connection
-             */
-            final DSRequest fetchEntity = new StickyDBDSRequest(connection);
-            fetchEntity.setDataSource(dsHandler.id());
-            fetchEntity.setOperationType(DSRequest.OperationType.FETCH);
-            fetchEntity.setData(criteria);
-            fetchEntity.setOutputs(outputs);
-
+        protected static String determineForeignOutputs(ForeignKeyRelation foreignKeyRelation, String outputs) {
             /*
              * if type is not provided it indicates that the only PKs should be fetched.
              *
@@ -331,19 +914,63 @@ public class JDBCHandler extends AbstractDSHandler {
 
                 final DataSource foreignDS = foreignKeyRelation.foreign().dataSource();
 
-                final String pkNames = foreignDS.getPKFields().stream()
+                return foreignDS.getPKFields().stream()
                         .map(DSField::getName)
                         .collect(Collectors.joining(", "));
-
-                fetchEntity.setOutputs(pkNames);
             }
 
-            return dsHandler.handle(fetchEntity);
+            return outputs;
         }
 
-        protected static Map<String, Object> retrieveIdsFromDb(Connection connection, DSField sourceField, ForeignKeyRelation foreignKeyRelation, Map<String, Object> pks) throws SQLException {
+        protected DSResponse fetchForeignEntity(Connection connection, ForeignKeyRelation foreignKeyRelation, String outputs, IDSRequestData criteria) throws Exception {
+            logger.debug("Performing foreign fetch for relation '%s' with criteria: %s"
+                    .formatted(
+                            foreignKeyRelation,
+                            criteria
+                    )
+            );
 
-            if (pks.size() > 1) {
+            final DSHandler dsHandler = getForeignHandler(foreignKeyRelation);
+
+            /*
+             * Create sticky request to re-use the same DB connection
+             */
+            final DSRequest fetchEntity = new StickyDBDSRequest(connection);
+            fetchEntity.setDataSource(dsHandler.id());
+            fetchEntity.setOperationType(DSRequest.OperationType.FETCH);
+            fetchEntity.setData(criteria);
+            fetchEntity.setOutputs(determineForeignOutputs(foreignKeyRelation, outputs));
+
+            return dsHandler.handle(fetchEntity);
+        }
+
+        protected IDSRequestData createInSetCriteria(String fieldName, Collection<Object> values) {
+            if (useSimpleCriteria) {
+                /*
+                 * Array value in a simple criteria is treated as "inSet"
+                 */
+                final DSRequest.MapData md = new DSRequest.MapData();
+
+                @SuppressWarnings("unchecked")
+                final Map<String, Object> criteria = md;
+                criteria.put(fieldName, values);
+                return md;
+            }
+
+            final AdvancedCriteria ac = new AdvancedCriteria();
+            final Criteria c = new Criteria();
+
+            c.setOperator(OperatorId.IN_SET);
+            c.setValue(values);
+            c.setFieldName(fieldName);
+
+            ac.setCriteria(List.of(c));
+            return ac;
+        }
+
+        protected static Map<String, Object> retrieveIdsFromDb(Connection connection, DSField sourceField, ForeignKeyRelation foreignKeyRelation, Map<String, Object> pks) throws SQLException {
+
+            if (pks.size() > 1) {
                 throw new IllegalStateException("Composite PKs is not supported");
             }
 
@@ -394,6 +1021,331 @@ public class JDBCHandler extends AbstractDSHandler {
             return Map.of(dstPk.getName(), values);
         }
 
+        /**
+         * Key values may be read from different columns (source PK, FK, join table columns), and
+         * JDBC drivers are free to return different numeric types for them.
+         */
+        private static Object normalizeKey(Object v) {
+            if (v instanceof Integer || v instanceof Long || v instanceof Short || v instanceof Byte) {
+                return ((Number) v).longValue();
+            }
+            return v;
+        }
+
+        /**
+         * Performs a subsequent entity fetch for the whole page at once: PK/FK values are collected
+         * from all the rows, the foreign entities are fetched by a single IN query per chunk
+         * (plus a single join table query for Many To Many) and then scattered back to the rows.
+         *
+         * All the provided sub-fetches must belong to the same field/relation.
+         *
+         * @return fetched values, in the same order as provided sub-fetches
+         */
+        public static Object[] fetch(Connection connection, List<EntitySubFetch> subFetches) {
+            final Object[] result = new Object[subFetches.size()];
+
+            if (subFetches.size() == 1) {
+                result[0] = subFetches.get(0).fetch(connection);
+                return result;
+            }
+
+            final EntitySubFetch head = subFetches.get(0);
+            try {
+                if (head.getDsf().getJoinTable() != null) {
+                    head.fetchManyToManyBatch(connection, subFetches, result);
+                } else {
+                    head.fetchBatch(connection, subFetches, result);
+                }
+            } catch ( Throwable t) {
+                final String message = "Subsequent batched entity fetch failed: %s, rows: %d"
+                        .formatted(
+                                head.foreignKeyRelation,
+                                subFetches.size()
+                        );
+
+                logger.error(message, t);
+                throw new RuntimeException(message, t);
+            }
+
+            return result;
+        }
+
+        private boolean isAllForeignKeysProvided(String fieldName) {
+            final Set<DSField> pkFields = getForeignKeyRelation().foreign().dataSource().getPKFields();
+            for (DSField pkf: pkFields) {
+                if (!pkf.getName().equals(fieldName)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void fetchBatch(Connection connection, List<EntitySubFetch> subFetches, Object[] result) throws Exception {
+            final String foreignFieldName = foreignKeyRelation.foreign().fieldName();
+
+            if (fetchOnlyPKs && isAllForeignKeysProvided(foreignFieldName)) {
+                /*
+                 * No needs to fetch anything, PK values are already known
+                 */
+                for (int i = 0; i < subFetches.size(); ++i) {
+                    result[i] = subFetches.get(i).fetch(connection);
+                }
+                return;
+            }
+
+            final DSField pkField = foreignKeyRelation.dataSource().getNonCompositePK();
+            final Map<Object, Object> keys = new LinkedHashMap<>();
+
+            for (EntitySubFetch esf : subFetches) {
+                final Object v = esf.getPrimaryKeys().get(pkField.getName());
+
+                if (v == null) {
+                    // This will indicate serious error in the request handling logic, if any
+                    throw new IllegalStateException("PK/FK value can not be null, but actually it is null: '%s.%s'."
+                            .formatted(
+                                    foreignKeyRelation.dataSource().getId(),
+                                    dsf.getName()
+                            )
+                    );
+                }
+                keys.putIfAbsent(normalizeKey(v), v);
+            }
+
+            final ForeignEntities fetched = fetchForeignEntitiesBy(connection, foreignFieldName, keys.values());
+
+            for (int i = 0; i < subFetches.size(); ++i) {
+                final Object key = normalizeKey(subFetches.get(i).getPrimaryKeys().get(pkField.getName()));
+                result[i] = new DSResponseDataContainer.RawDataResponse(
+                        fetched.fields(),
+                        fetched.rowsByKey().getOrDefault(key, List.of())
+                );
+            }
+        }
+
+        private void fetchManyToManyBatch(Connection connection, List<EntitySubFetch> subFetches, Object[] result) throws Exception {
+            final DSField srcPk = foreignKeyRelation.dataSource().getNonCompositePK();
+            final DSField dstPk = foreignKeyRelation.foreign().dataSource().getNonCompositePK();
+
+            final Map<Object, Object> srcKeys = new LinkedHashMap<>();
+            for (EntitySubFetch esf : subFetches) {
+                final Object v = esf.getPrimaryKeys().get(srcPk.getName());
+                if (v != null) {
+                    srcKeys.putIfAbsent(normalizeKey(v), v);
+                }
+            }
+
+            final Map<Object, Set<Object>> relatedIds = retrieveIdsFromDb(connection, getDsf(), srcKeys.values());
+
+            if (fetchOnlyPKs) {
+                /*
+                 * No needs to fetch PKs
+                 */
+                final Set<DSField> pkFields = Set.of(dstPk);
+
+                for (int i = 0; i < subFetches.size(); ++i) {
+                    final Object key = normalizeKey(subFetches.get(i).getPrimaryKeys().get(srcPk.getName()));
+                    final Set<Object> ids = relatedIds.get(key);
+
+                    if (ids == null) {
+                        /*
+                         * It can happen when Many2Many does not have related records
+                         */
+                        result[i] = null;
+                    } else {
+                        final List<Object[]> cc = ids.stream()
+                                .map( v -> new Object[]{v} )
+                                .collect(Collectors.toList());
+
+                        result[i] = DSResponse.successFetch(0, cc.size()-1, cc.size(), pkFields, cc)
+                                .getData()
+                                .getRawDataResponse();
+                    }
+                }
+                return;
+            }
+
+            final Map<Object, Object> dstKeys = new LinkedHashMap<>();
+            relatedIds.values()
+                    .forEach( ids -> ids.forEach( v -> dstKeys.putIfAbsent(normalizeKey(v), v)));
+
+            final ForeignEntities fetched = dstKeys.isEmpty() ?
+                    ForeignEntities.EMPTY : fetchForeignEntitiesBy(connection, dstPk.getName(), dstKeys.values());
+
+            for (int i = 0; i < subFetches.size(); ++i) {
+                final Object key = normalizeKey(subFetches.get(i).getPrimaryKeys().get(srcPk.getName()));
+                final Set<Object> ids = relatedIds.get(key);
+
+                if (ids == null) {
+                    result[i] = null;
+                    continue;
+                }
+
+                final List<Object[]> rows = new ArrayList<>(ids.size());
+                for (Object id : ids) {
+                    rows.addAll(fetched.rowsByKey().getOrDefault(normalizeKey(id), List.of()));
+                }
+
+                result[i] = new DSResponseDataContainer.RawDataResponse(fetched.fields(), rows);
+            }
+        }
+
+        /**
+         * Foreign entities fetched by the set of key values
+         *
+         * @param fields fields of the fetched entities, the key field is excluded if it was not requested explicitly
+         * @param rowsByKey fetched rows grouped by the normalized key value
+         */
+        private record ForeignEntities(
+                List<DSField> fields,
+                Map<Object, List<Object[]>> rowsByKey
+        ) {
+            static final ForeignEntities EMPTY = new ForeignEntities(List.of(), Map.of());
+        }
+
+        /**
+         * Fetches foreign entities by the set of key values and groups them by the key value.
+         */
+        private ForeignEntities fetchForeignEntitiesBy(Connection connection, String keyFieldName, Collection<Object> keyValues) throws Exception {
+            final Collection<DSField> effectiveFields = fetchOnlyPKs ?
+                    getForeignKeyRelation().foreign().dataSource().getPKFields() : getRequestedFields();
+
+            final List<String> outputs = Arrays.stream(
+                        determineForeignOutputs(
+                            getForeignKeyRelation(),
+                            effectiveFields.stream()
+                                .map(DSField::getName)
+                                .collect(Collectors.joining(", "))
+                        ).split(",")
+                    )
+                    .map(String::trim)
+                    .filter(s -> !s.isEmpty())
+                    .collect(Collectors.toCollection(ArrayList::new));
+
+            /*
+             * Key field is required to scatter fetched entities back to the rows
+             */
+            final boolean isKeyRequested = outputs.contains(keyFieldName);
+            if (!isKeyRequested) {
+                outputs.add(keyFieldName);
+            }
+
+            final Map<Object, List<Object[]>> grouped = new HashMap<>();
+            List<DSField> fetchedFields = List.of();
+            final List<Object> allKeys = new ArrayList<>(keyValues);
+
+            for (int from = 0; from < allKeys.size(); from += BATCH_SIZE) {
+                final List<Object> chunk = allKeys.subList(from, Math.min(from + BATCH_SIZE, allKeys.size()));
+
+                logger.debug("Performing batched foreign fetch for relation '%s' by %d key(s)"
+                        .formatted(
+                                foreignKeyRelation,
+                                chunk.size()
+                        )
+                );
+
+                final DSHandler dsHandler = getForeignHandler(foreignKeyRelation);
+
+                /*
+                 * Create sticky request to re-use the same DB connection
+                 */
+                final DSRequest fetchEntity = new StickyDBDSRequest(connection);
+                fetchEntity.setDataSource(dsHandler.id());
+                fetchEntity.setOperationType(DSRequest.OperationType.FETCH);
+                fetchEntity.setData(createInSetCriteria(keyFieldName, new ArrayList<>(chunk)));
+                fetchEntity.setOutputs(String.join(", ", outputs));
+
+                final DSResponse response = dsHandler.handle(fetchEntity);
+
+                if (0 != response.getStatus()) {
+                    throw new RuntimeException("Subsequent entity fetch failed: %s, %s"
+                            .formatted(
+                                    response.getData().getGeneralFailureMessage(),
+                                    foreignKeyRelation
+                            )
+                    );
+                }
+
+                final DSResponseDataContainer.RawDataResponse rdr = response.getData().getRawDataResponse();
+
+                final List<DSField> fields = new ArrayList<>();
+                rdr.getFields().forEach(fields::add);
+
+                int keyIdx = -1;
+                for (int i = 0; i < fields.size(); ++i) {
+                    if (fields.get(i).getName().equals(keyFieldName)) {
+                        keyIdx = i;
+                        break;
+                    }
+                }
+
+                if (keyIdx == -1) {
+                    throw new IllegalStateException("Batched entity fetch: key field '%s' is missing in the response of '%s'."
+                            .formatted(keyFieldName, dsHandler.id()));
+                }
+
+                if (!isKeyRequested) {
+                    fields.remove(keyIdx);
+                }
+                fetchedFields = fields;
+
+                for (Object[] r : rdr.getData()) {
+                    final Object[] row;
+                    if (isKeyRequested) {
+                        row = r;
+                    } else {
+                        row = new Object[r.length - 1];
+                        System.arraycopy(r, 0, row, 0, keyIdx);
+                        System.arraycopy(r, keyIdx + 1, row, keyIdx, r.length - keyIdx - 1);
+                    }
+
+                    grouped.computeIfAbsent(normalizeKey(r[keyIdx]), k -> new ArrayList<>())
+                            .add(row);
+                }
+            }
+
+            return new ForeignEntities(fetchedFields, grouped);
+        }
+
+        protected static Map<Object, Set<Object>> retrieveIdsFromDb(Connection connection, DSField sourceField, Collection<Object> srcPkValues) throws SQLException {
+            final DSField.JoinTableDescr jtd = sourceField.getJoinTable();
+            final Map<Object, Set<Object>> values = new HashMap<>();
+            final List<Object> allKeys = new ArrayList<>(srcPkValues);
+
+            for (int from = 0; from < allKeys.size(); from += BATCH_SIZE) {
+                final List<Object> chunk = allKeys.subList(from, Math.min(from + BATCH_SIZE, allKeys.size()));
+
+                try (PreparedStatement st = connection.prepareStatement(
+                        "SELECT %s, %s FROM %s WHERE %s IN (%s)"
+                                .formatted(
+                                        jtd.getSourceColumn(),
+                                        jtd.getDestColumn(),
+                                        jtd.getTableName(),
+                                        jtd.getSourceColumn(),
+                                        String.join(",", Collections.nCopies(chunk.size(), "?"))
+                                ),
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+                    int idx = 0;
+                    for (Object v : chunk) {
+                        st.setObject(++idx, v);
+                    }
+
+                    try (ResultSet rs = st.executeQuery()) {
+                        while (rs.next()) {
+                            final Object src = rs.getObject(1);
+                            final Object dst = rs.getObject(2);
+                            assert dst != null;
+
+                            values.computeIfAbsent(normalizeKey(src), k -> new LinkedHashSet<>())
+                                    .add(dst);
+                        }
+                    }
+                }
+            }
+
+            return values;
+        }
+
         public Object fetch(Connection connection) {
 
             final DSResponse response;
@@ -442,108 +1394,488 @@ public class JDBCHandler extends AbstractDSHandler {
                 }
 
 
-                if (fetchOnlyPKs && allKeysProvided) {
-                    /*
-                     * No needs to fetch PKs
-                     */
+                if (fetchOnlyPKs && allKeysProvided) {
+                    /*
+                     * No needs to fetch PKs
+                     */
+
+                    if (effectivePKs.size() > 1) {
+                        throw new IllegalStateException("Composite PKs is not supported.");
+                    }
+
+
+
+                    final Map.Entry<String, Object> e = effectivePKs.entrySet().iterator().next();
+
+                    // Not sure that it will work with composite PKs
+                    assert pkFields.size() <= 1;
+
+                    if (e.getValue() instanceof Collection c) {
+                        final int size = c.size();
+                        final List<Object[]> cc = (List)c.stream()
+                                .map( v -> new Object[]{v} )
+                                .collect(Collectors.toList());
+
+                        response = DSResponse.successFetch(0, size-1, size, pkFields, cc);
+                    } else {
+                        response = DSResponse.successFetch(0, 1, 1, pkFields, (List)List.of(new Object[] {e.getValue()}));
+                    }
+
+                } else {
+
+                    final Collection<DSField> effectiveFields = fetchOnlyPKs ? pkFields : getRequestedFields();
+                    final String entityOutputs = effectiveFields.stream()
+                                    .map(DSField::getName)
+                                    .collect(Collectors.joining(", "));
+
+                    // -- create Criteria to fetch by PK
+                    if (primaryKeys.size() > 1) {
+                        throw new IllegalStateException("Composite PKs is not supported");
+                    }
+
+                    final IDSRequestData filterData;
+
+                    if (useSimpleCriteria) {
+                        final DSRequest.MapData md = new DSRequest.MapData();
+                        md.putAll(effectivePKs);
+                        filterData = md;
+                    } else {
+                        final Map.Entry<String, Object> e = effectivePKs.entrySet().iterator().next();
+                        final AdvancedCriteria ac = new AdvancedCriteria();
+                        final Criteria c = new Criteria();
+
+                        c.setOperator(OperatorId.IN_SET);
+                        c.setValue(e.getValue());
+                        c.setFieldName(e.getKey());
+
+                        ac.setCriteria(List.of(c));
+                        filterData = ac;
+                    }
+
+                    // --
+                    response = this.fetchForeignEntity(connection, getForeignKeyRelation(), entityOutputs, filterData);
+                }
+                assert response != null;
+            } catch ( Throwable t) {
+                final String message = "Subsequent entity fetch failed: %s, filters: %s"
+                        .formatted(
+                                foreignKeyRelation,
+                                getPrimaryKeys().entrySet().stream()
+                                        .map( e -> "'%s': %s"
+                                                .formatted(
+                                                        e.getKey(),
+                                                        e.getValue()
+                                                )
+                                        )
+                                        .collect(Collectors.joining(","))
+                        );
+
+                logger.error(message, t);
+                throw new RuntimeException(message, t);
+            }
+
+            if (0 != response.getStatus()) {
+                throw new RuntimeException("Subsequent entity fetch failed: %s, %s, filters: %s"
+                        .formatted(
+                                response.getData().getGeneralFailureMessage(),
+                                foreignKeyRelation,
+                                getPrimaryKeys().entrySet().stream()
+                                        .map( e -> "'%s': %s"
+                                                .formatted(
+                                                        e.getKey(),
+                                                        e.getValue()
+                                                )
+                                        )
+                                        .collect(Collectors.joining(","))
+                        )
+                );
+            }
+
+            Object o = response.getData().getRawDataResponse();
+            assert o != null;
+
+            return o;
+        }
+    }
+
+    protected int fetchTotalRows(SQLFetchContext<JDBCHandler> sqlFetchContext, Connection connection) {
+        final String countQuery = sqlFetchContext.buildCountQuery();
+
+        if (logger.isTraceEnabled()) {
+            logger.trace("DataSource %s fetch count(*) query:\n%s\n\nparams:\n%s"
+                    .formatted(
+                            getDataSource().getId(),
+                            countQuery,
+                            sqlFetchContext.getFilterData().stream()
+                                    .flatMap(fd -> StreamSupport.stream(fd.values().spliterator(), false))
+                                    .map("%s"::formatted)
+                                    .collect(Collectors.joining(", "))
+                    )
+            );
+        }
+
+        sqlFetchContext.setEffectiveSQL(countQuery);
+
+        try (PreparedStatement st = connection.prepareStatement(countQuery, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            configureStatement(st, sqlFetchContext.operationBinding());
+            int idx = 0;
+
+            for (IFilterData fd : sqlFetchContext.getFilterData()) {
+                idx = fd.setStatementParameters(idx, st);
+            }
+
+            try (ResultSet rs = st.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        } catch (Throwable t) {
+            throw new ContextualRuntimeException("SQL count query execution failed.", t, sqlFetchContext);
+        }
+    }
+
+    protected boolean isKeysetPagination(OperationBinding operationBinding) {
+        if (operationBinding != null && operationBinding.isKeysetPagination() != null) {
+            return operationBinding.isKeysetPagination();
+        }
+
+        return Boolean.TRUE.equals(getDataSource().isKeysetPagination());
+    }
+
+    protected boolean isProgressiveLoading(OperationBinding operationBinding) {
+        if (operationBinding != null && operationBinding.isProgressiveLoading() != null) {
+            return operationBinding.isProgressiveLoading();
+        }
+
+        return Boolean.TRUE.equals(getDataSource().isProgressiveLoading());
+    }
+
+    protected DataSource.TotalRowsMode determineTotalRowsMode(OperationBinding operationBinding) {
+        if (operationBinding != null && operationBinding.getTotalRowsMode() != null) {
+            return operationBinding.getTotalRowsMode();
+        }
+
+        if (getDataSource().getTotalRowsMode() != null) {
+            return getDataSource().getTotalRowsMode();
+        }
+
+        return DataSource.TotalRowsMode.COUNT_QUERY;
+    }
+
+    /**
+     * Checks whether {@code COUNT(*) OVER()} can be used, result is determined once per handler
+     * based on the database product reported by the JDBC driver.
+     */
+    protected boolean isWindowFunctionSupported(Connection connection) throws SQLException {
+        if (windowFunctionSupported == null) {
+            final DatabaseMetaData md = connection.getMetaData();
+            final boolean supported = isWindowFunctionSupported(md.getDatabaseProductName(), md.getDatabaseProductVersion(),
+                    md.getDatabaseMajorVersion(), md.getDatabaseMinorVersion());
+
+            if (!supported) {
+                logger.warn("DataSource '%s': COUNT(*) OVER() is not supported by '%s %s', total rows will be calculated by a separate query."
+                        .formatted(getDataSource().getId(), md.getDatabaseProductName(), md.getDatabaseProductVersion()));
+            }
+
+            windowFunctionSupported = supported;
+        }
+        return windowFunctionSupported;
+    }
+
+    /**
+     * The opaque fetch query selects {@code *, COUNT(*) OVER()}, that is rejected by Oracle,
+     * therefore Oracle is not listed.
+     */
+    static boolean isWindowFunctionSupported(String productName, String productVersion, int major, int minor) {
+        final String product = productName.toLowerCase();
+
+        if (product.contains("mariadb") || productVersion.toLowerCase().contains("mariadb")) {
+            return major > 10 || (major == 10 && minor >= 2);
+        } else if (product.contains("mysql")) {
+            return major >= 8;
+        } else if (product.contains("h2")) {
+            // Window functions are available since 1.4.198, the patch number is reported only by the version string,
+            // e.g. "1.4.200 (2019-10-14)"
+            if (major != 1 || minor != 4) {
+                return major > 1 || (major == 1 && minor > 4);
+            }
+
+            final String[] parts = productVersion.trim().split("[.\\s]");
+            try {
+                return parts.length > 2 && Integer.parseInt(parts[2]) >= 198;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+
+        return product.contains("postgresql")
+                || product.contains("microsoft sql server");
+    }
+
+    /**
+     * Returns a response which rows are not materialized: they are read from the ResultSet while the response
+     * is being serialized, the DB connection is held only for the duration of the write.
+     *
+     * The total is calculated upfront by a COUNT query and endRow is derived from it, the rows are read later
+     * by another connection (possibly served by another replica). Therefore both are estimates: they may differ
+     * from the rows actually written if the table is modified in between.
+     */
+    protected DSResponse doHandleStreamingFetch(SQLFetchContext<JDBCHandler> sqlFetchContext) throws Exception {
+        final DSRequest request = sqlFetchContext.request();
+        final int[] totalRows = {-1};
+
+        policy.withReadOnlyConnectionDo(this.getDataSource().getDbName(), conn -> {
+            totalRows[0] = fetchTotalRows(sqlFetchContext, conn);
+            return null;
+        });
+
+        final int startRow = Math.max(request.getStartRow(), 0);
+        final int endRow = sqlFetchContext.getPageSize() > 0 ?
+                Math.min(request.getEndRow(), totalRows[0]) : totalRows[0];
+
+        return DSResponse.successStreamedFetch(startRow, Math.max(startRow, endRow), totalRows[0],
+                sqlFetchContext.getRequestedFields(),
+                new StreamingRows(sqlFetchContext, StreamingRows.FETCH_SIZE, false)
+        );
+    }
+
+    /**
+     * Exported rows are read on demand through a forward-only cursor with a large fetch size, and the total rows
+     * count is not calculated at all, therefore memory consumption does not depend on the number of exported rows.
+     */
+    protected DSResponse doHandleExport(SQLFetchContext<JDBCHandler> sqlFetchContext) {
+        final int startRow = Math.max(sqlFetchContext.request().getStartRow(), 0);
+
+        return DSResponse.successStreamedFetch(startRow, startRow, -1,
+                sqlFetchContext.getRequestedFields(),
+                new StreamingRows(sqlFetchContext, StreamingRows.EXPORT_FETCH_SIZE, true)
+        );
+    }
+
+    /**
+     * Cached responses are read into memory, therefore such fetches are never streamed.
+     */
+    protected DSResponse doHandleCachedFetch(DSRequest request) throws Exception {
+        final FetchResultCache.Key key = FetchResultCache.Key.of(request);
+
+        final DSResponse cached = fetchResultCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        final long generation = fetchResultCache.generation();
+        final DSResponse[] r = {null};
+        policy.withReadOnlyConnectionDo(this.getDataSource().getDbName(), conn -> {
+            r[0] = doHandleFetch(request, conn, true);
+            return null;
+        });
+
+        fetchResultCache.put(key, r[0], generation);
+        return r[0];
+    }
+
+    /**
+     * Uncommitted writes of the current transaction must be neither cached nor hidden by the cached responses.
+     */
+    protected boolean isWrittenByCurrentTransaction() {
+        return policy instanceof TransactionalJDBCPolicy transactionalPolicy
+                && transactionalPolicy.isEnlisted(getDataSource().getDbName());
+    }
+
+    protected boolean isCacheResults(OperationBinding operationBinding) {
+        if (operationBinding != null && operationBinding.isCacheResults() != null) {
+            return operationBinding.isCacheResults();
+        }
+
+        return Boolean.TRUE.equals(getDataSource().isCacheResults());
+    }
+
+    protected boolean isStreamResults(OperationBinding operationBinding) {
+        if (operationBinding != null && operationBinding.isStreamResults() != null) {
+            return operationBinding.isStreamResults();
+        }
+
+        return Boolean.TRUE.equals(getDataSource().isStreamResults());
+    }
+
+    /**
+     * @return 0 if the statement execution time is not limited
+     */
+    protected int getQueryTimeout(OperationBinding operationBinding) {
+        if (operationBinding != null && operationBinding.getQueryTimeout() != null) {
+            return operationBinding.getQueryTimeout();
+        }
+
+        return getDataSource().getQueryTimeout() == null ? 0 : getDataSource().getQueryTimeout();
+    }
+
+    /**
+     * Applies the query timeout and makes the statement cancellable on behalf of the client request
+     * it is executed for, see {@link QueryCancellation}.
+     */
+    protected void configureStatement(Statement st, OperationBinding operationBinding) throws SQLException {
+        final int queryTimeout = getQueryTimeout(operationBinding);
+        if (queryTimeout > 0) {
+            st.setQueryTimeout(queryTimeout);
+        }
 
-                    if (effectivePKs.size() > 1) {
-                        throw new IllegalStateException("Composite PKs is not supported.");
-                    }
+        QueryCancellation.register(st);
+    }
 
+    /**
+     * Rows are read on demand: each {@link #forEach(Consumer)} executes the fetch query and passes rows
+     * to the consumer directly from the ResultSet.
+     */
+    private class StreamingRows implements DSResponseDataContainer.RowStream {
+        private static final int FETCH_SIZE = 500;
+        private static final int EXPORT_FETCH_SIZE = 10000;
 
+        private final SQLFetchContext<JDBCHandler> sqlFetchContext;
+        private final int fetchSize;
 
-                    final Map.Entry<String, Object> e = effectivePKs.entrySet().iterator().next();
+        /**
+         * Whether the rows are read within a transaction, since some drivers (e.g. PostgreSQL) use
+         * a server-side cursor only when autocommit is off, and read the whole result into memory otherwise
+         */
+        private final boolean useCursor;
 
-                    // Not sure that it will work with composite PKs
-                    assert pkFields.size() <= 1;
+        private StreamingRows(SQLFetchContext<JDBCHandler> sqlFetchContext, int fetchSize, boolean useCursor) {
+            this.sqlFetchContext = sqlFetchContext;
+            this.fetchSize = fetchSize;
+            this.useCursor = useCursor;
+        }
 
-                    if (e.getValue() instanceof Collection c) {
-                        final int size = c.size();
-                        final List<Object[]> cc = (List)c.stream()
-                                .map( v -> new Object[]{v} )
-                                .collect(Collectors.toList());
+        @Override
+        public void forEach(Consumer<? super Object[]> action) {
+            final String opaqueFetchQuery = sqlFetchContext.buildFetchQuery("", null,
+                    sqlFetchContext.getOrderClause(), sqlFetchContext.getPaginationClause());
 
-                        response = DSResponse.successFetch(0, size-1, size, pkFields, cc);
-                    } else {
-                        response = DSResponse.successFetch(0, 1, 1, pkFields, (List)List.of(new Object[] {e.getValue()}));
+            try {
+                policy.withReadOnlyConnectionDo(getDataSource().getDbName(), conn -> {
+                    final boolean autoCommit = useCursor && conn.getAutoCommit();
+                    if (autoCommit) {
+                        conn.setAutoCommit(false);
                     }
 
-                } else {
+                    try (PreparedStatement st = conn.prepareStatement(opaqueFetchQuery, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                        configureStatement(st, sqlFetchContext.operationBinding());
+                        st.setFetchSize(fetchSize);
+                        st.setFetchDirection(ResultSet.FETCH_FORWARD);
+                        if (sqlFetchContext.getPageSize() > 0) {
+                            st.setMaxRows(sqlFetchContext.getPageSize());
+                        }
 
-                    final Collection<DSField> effectiveFields = fetchOnlyPKs ? pkFields : getRequestedFields();
-                    final String entityOutputs = effectiveFields.stream()
-                                    .map(DSField::getName)
-                                    .collect(Collectors.joining(", "));
+                        int idx = 0;
+                        for (IFilterData fd : sqlFetchContext.getFilterData()) {
+                            idx = fd.setStatementParameters(idx, st);
+                        }
 
-                    // -- create Criteria to fetch by PK
-                    if (primaryKeys.size() > 1) {
-                        throw new IllegalStateException("Composite PKs is not supported");
+                        try (ResultSet rs = st.executeQuery()) {
+                            while (rs.next()) {
+                                action.accept(readRow(sqlFetchContext, rs));
+                            }
+                        }
+                    } finally {
+                        if (autoCommit) {
+                            conn.setAutoCommit(true);
+                        }
                     }
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new ContextualRuntimeException("SQL streaming fetch query execution failed.", e, sqlFetchContext);
+            }
+        }
+    }
 
-                    final IDSRequestData filterData;
+    /**
+     * Reads the current row of the ResultSet, field values are post-processed and sub-entity fields
+     * are populated with {@link EntitySubFetch} placeholders.
+     */
+    protected Object[] readRow(SQLFetchContext<JDBCHandler> sqlFetchContext, ResultSet rs) throws SQLException {
+        return completeRow(sqlFetchContext, readRawRow(sqlFetchContext, rs));
+    }
 
-                    if (useSimpleCriteria) {
-                        final DSRequest.MapData md = new DSRequest.MapData();
-                        md.putAll(effectivePKs);
-                        filterData = md;
-                    } else {
-                        final Map.Entry<String, Object> e = effectivePKs.entrySet().iterator().next();
-                        final AdvancedCriteria ac = new AdvancedCriteria();
-                        final Criteria c = new Criteria();
+    /**
+     * Reads the current row of the ResultSet as is, see {@link #completeRow(SQLFetchContext, Object[])}.
+     */
+    protected Object[] readRawRow(SQLFetchContext<JDBCHandler> sqlFetchContext, ResultSet rs) throws SQLException {
+        final SQLFetchContext.RowLayout layout = sqlFetchContext.getRowLayout();
+        final ColumnReader[] readers = layout.readers();
+
+        // ORIGINAL FIELD ORDER MUST BE PRESERVED
+        final Object[] r = new Object[readers.length];
+        for (int i = 0; i < readers.length; ++i) {
+            r[i] = readers[i].read(rs, i + 1);
+        }
 
-                        c.setOperator(OperatorId.IN_SET);
-                        c.setValue(e.getValue());
-                        c.setFieldName(e.getKey());
+        for (int i : layout.pkColumns()) {
+            if (r[i] == null) {
+                throw new ContextualRuntimeException(
+                        "Datasource '%s': Fetch failed, Primary Key value can not be null, but actually it is, field: '%s'."
+                                .formatted(
+                                    this.getDataSource().getId(),
+                                    sqlFetchContext.getRequestedFields().get(i).getName()
+                                ),
+                        sqlFetchContext
+                );
+            }
+        }
 
-                        ac.setCriteria(List.of(c));
-                        filterData = ac;
-                    }
+        return r;
+    }
 
-                    // --
-                    response = this.fetchForeignEntity(connection, getForeignKeyRelation(), entityOutputs, filterData);
-                }
-                assert response != null;
-            } catch ( Throwable t) {
-                final String message = "Subsequent entity fetch failed: %s, filters: %s"
-                        .formatted(
-                                foreignKeyRelation,
-                                getPrimaryKeys().entrySet().stream()
-                                        .map( e -> "'%s': %s"
-                                                .formatted(
-                                                        e.getKey(),
-                                                        e.getValue()
-                                                )
-                                        )
-                                        .collect(Collectors.joining(","))
-                        );
+    /**
+     * Field values of the raw row are post-processed and sub-entity fields are populated
+     * with {@link EntitySubFetch} placeholders.
+     */
+    protected Object[] completeRow(SQLFetchContext<JDBCHandler> sqlFetchContext, Object[] r) {
+        final SQLFetchContext.RowLayout layout = sqlFetchContext.getRowLayout();
 
-                logger.error(message, t);
-                throw new RuntimeException(message, t);
-            }
+        if (!postProcessFieldValueOverridden && layout.subEntityColumns().length == 0) {
+            return postProcessRowOverridden ? postProcessRow(sqlFetchContext, r) : r;
+        }
 
-            if (0 != response.getStatus()) {
-                throw new RuntimeException("Subsequent entity fetch failed: %s, %s, filters: %s"
-                        .formatted(
-                                response.getData().getGeneralFailureMessage(),
-                                foreignKeyRelation,
-                                getPrimaryKeys().entrySet().stream()
-                                        .map( e -> "'%s': %s"
-                                                .formatted(
-                                                        e.getKey(),
-                                                        e.getValue()
-                                                )
-                                        )
-                                        .collect(Collectors.joining(","))
-                        )
-                );
+        final Map<String, Object> rowPkValues = new HashMap<>();
+        for (int i : layout.pkColumns()) {
+            rowPkValues.put(sqlFetchContext.getRequestedFields().get(i).getName(), r[i]);
+        }
+
+        if (postProcessFieldValueOverridden) {
+            for (int j = 0; j < r.length; ++j) {
+                r[j] = postProcessFieldValue(sqlFetchContext, rowPkValues, sqlFetchContext.getRequestedFields().get(j), r[j]);
             }
+        }
 
-            Object o = response.getData().getRawDataResponse();
-            assert o != null;
+        for (int j : layout.subEntityColumns()) {
+            final DSField dsf = sqlFetchContext.getRequestedFields().get(j);
 
-            return o;
+            /*
+             * Create EntitySubFetch for further processing
+             */
+            final List<ForeignRelation> ffs = sqlFetchContext.getAdditionalOutputs().get(dsf);
+            final List<DSField> requestedFields = ffs == null ? null : ffs.stream()
+                    .map(ForeignRelation::field)
+                    .collect(Collectors.toList());
+
+            r[j] = EntitySubFetch.create( !this.allowAdvancedCriteria(),
+                    this::getDataSourceHandlerById,
+                    this.getDataSource(),
+                    dsf,
+                    requestedFields,
+                    rowPkValues
+            );
+        }
+
+        if (!postProcessRowOverridden) {
+            return r;
         }
+
+        final Object[] postProcessed = postProcessRow(sqlFetchContext, r);
+
+        assert postProcessed.length == r.length;
+        return postProcessed;
     }
 
     protected DSResponse doHandleFetch(DSRequest request, Connection connection, boolean calculateTotal) throws Exception {
@@ -552,62 +1884,116 @@ public class JDBCHandler extends AbstractDSHandler {
 
         final List<Object[]> data;
         if (sqlFetchContext.getPageSize() > 0) {
-            data = new ArrayList<>(sqlFetchContext.getPageSize());
+            data = new ArrayList<>(sqlFetchContext.getPageSize() + 1);
         } else {
             data = new LinkedList<>();
         }
 
         final int[] totalRows = new int[] {-1};
+        final List<Object[]> rowKeys = new ArrayList<>();
 
-        // -- calculate total
-        if (calculateTotal) {
-            /*
-             * Opaque query is required for a proper filtering by calculated fields
-             */
-            @SuppressWarnings("SqlNoDataSourceInspection") final String countQuery = "SELECT count(*) FROM %s"
-                    .formatted(sqlFetchContext.getGenericQuery());
+        /*
+         * Grouped summaries are fetched after the page is read, the rows are post-processed once they are filled
+         */
+        final boolean hasGroupedSummaries = !sqlFetchContext.getGroupedSummaryFields().isEmpty();
 
-            if (logger.isTraceEnabled()) {
-                logger.trace("DataSource %s fetch count(*) query:\n%s\n\nparams:\n%s"
-                        .formatted(
-                                getDataSource().getId(),
-                                countQuery,
-                                sqlFetchContext.getFilterData().stream()
-                                        .flatMap(fd -> StreamSupport.stream(fd.values().spliterator(), false))
-                                        .map("%s"::formatted)
-                                        .collect(Collectors.joining(", "))
-                        )
-                );
-            }
+        /*
+         * With progressive loading the exact total is not calculated, one extra row is fetched instead
+         * to find out whether more rows exist.
+         */
+        final boolean progressiveLoading = calculateTotal
+                && sqlFetchContext.getPageSize() > 0
+                && isProgressiveLoading(operationBinding);
 
-            sqlFetchContext.setEffectiveSQL(countQuery);
+        final int lookAhead = progressiveLoading ? 1 : 0;
 
-            try (PreparedStatement st = connection.prepareStatement(countQuery, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
-                int idx = 0;
+        /*
+         * Keyset pagination: the next sequential page for the same component is fetched by seeking
+         * from the last key of the previous page, random jumps fall back to OFFSET.
+         */
+        final List<SQLFetchContext.SortKey> sortKeys = sqlFetchContext.getPageSize() > 0
+                && request.getComponentId() != null
+                && isKeysetPagination(operationBinding) ? sqlFetchContext.getKeysetSortKeys() : null;
+
+        final KeysetCursorCache.Key cursorKey;
+        final KeysetCursorCache.Cursor cursor;
+        if (sortKeys != null) {
+            cursorKey = new KeysetCursorCache.Key(
+                    request.getComponentId(),
+                    sqlFetchContext.getGenericQuery() + sortKeys,
+                    sqlFetchContext.getFilterData().stream()
+                            .flatMap(fd -> StreamSupport.stream(fd.values().spliterator(), false))
+                            .collect(Collectors.toList())
+            );
 
-                for (IFilterData fd : sqlFetchContext.getFilterData()) {
-                    idx = fd.setStatementParameters(idx, st);
-                }
+            final KeysetCursorCache.Cursor c = keysetCursorCache.get(cursorKey);
+            cursor = c != null && c.endRow() == request.getStartRow() ? c : null;
+        } else {
+            cursorKey = null;
+            cursor = null;
+        }
 
-                try (ResultSet rs = st.executeQuery()) {
-                    rs.next();
-                    totalRows[0] = rs.getInt(1);
-                }
-            } catch (Throwable t) {
-                throw new ContextualRuntimeException("SQL count query execution failed.", t, sqlFetchContext);
-            }
+        /*
+         * Total can be calculated by the page query itself, if it is allowed and supported by the database.
+         * Seek query does not see the preceding rows, therefore it can't be used for the total.
+         */
+        final boolean useWindowCount = calculateTotal
+                && !progressiveLoading
+                && cursor == null
+                && determineTotalRowsMode(operationBinding) == DataSource.TotalRowsMode.WINDOW_FUNCTION
+                && isWindowFunctionSupported(connection);
+
+        // -- calculate total
+        if (calculateTotal && !useWindowCount && !progressiveLoading) {
+            totalRows[0] = fetchTotalRows(sqlFetchContext, connection);
         }
 
         // -- fetch data
         /*
-         * Opaque query is required for a proper filtering by calculated fields
+         * Opaque query is required for a proper filtering by calculated fields only,
+         * otherwise the context provides a flat query.
          */
-        @SuppressWarnings("SqlNoDataSourceInspection")
-        final String opaqueFetchQuery = """
-             SELECT * FROM %s
-                %s
-                %s
-        """.formatted(sqlFetchContext.getGenericQuery(), sqlFetchContext.getOrderClause(), sqlFetchContext.getPaginationClause());
+        final String orderClause = sortKeys == null ? sqlFetchContext.getOrderClause() : " ORDER BY \n" +
+                sortKeys.stream()
+                        .map(k -> "%s%s".formatted(sqlFetchContext.columnReference(k.column()), k.descending() ? " DESC" : ""))
+                        .collect(Collectors.joining(", "));
+
+        final String opaqueFetchQuery;
+        final List<Object> seekValues = new LinkedList<>();
+
+        if (cursor == null) {
+            opaqueFetchQuery = sqlFetchContext.buildFetchQuery(
+                    useWindowCount ? ", COUNT(*) OVER() AS " + TOTAL_ROWS_COLUMN : "",
+                    null,
+                    orderClause,
+                    sqlFetchContext.getPaginationClause(lookAhead)
+            );
+        } else {
+            /*
+             * (k1 > ?) OR (k1 = ? AND k2 > ?) OR ..., it handles mixed sort directions
+             */
+            final List<String> conditions = new ArrayList<>(sortKeys.size());
+            for (int i = 0; i < sortKeys.size(); ++i) {
+                final StringBuilder sb = new StringBuilder("(");
+                for (int j = 0; j < i; ++j) {
+                    sb.append("%s = ? AND ".formatted(sqlFetchContext.columnReference(sortKeys.get(j).column())));
+                    seekValues.add(cursor.lastKey()[j]);
+                }
+
+                final SQLFetchContext.SortKey k = sortKeys.get(i);
+                sb.append("%s %s ?)".formatted(sqlFetchContext.columnReference(k.column()), k.descending() ? "<" : ">"));
+                seekValues.add(cursor.lastKey()[i]);
+
+                conditions.add(sb.toString());
+            }
+
+            opaqueFetchQuery = sqlFetchContext.buildFetchQuery(
+                    "",
+                    String.join("\n\t\t OR ", conditions),
+                    orderClause,
+                    sqlFetchContext.getSeekPaginationClause(lookAhead)
+            );
+        }
 
         if (logger.isTraceEnabled()) {
             logger.trace("DataSource %s fetch query:\n%s\n\nparams:\n%s"
@@ -626,11 +2012,12 @@ public class JDBCHandler extends AbstractDSHandler {
         sqlFetchContext.setEffectiveSQL(opaqueFetchQuery);
 
         try(PreparedStatement st = connection.prepareStatement(opaqueFetchQuery, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)){
+            configureStatement(st, sqlFetchContext.operationBinding());
 
             // If paginated, then tune statement accordingly
             if (sqlFetchContext.getPageSize() != -1) {
-                st.setFetchSize(sqlFetchContext.getPageSize());
-                st.setMaxRows(sqlFetchContext.getPageSize());
+                st.setFetchSize(sqlFetchContext.getPageSize() + lookAhead);
+                st.setMaxRows(sqlFetchContext.getPageSize() + lookAhead);
             }
 
             st.setFetchDirection(ResultSet.FETCH_FORWARD);
@@ -640,67 +2027,27 @@ public class JDBCHandler extends AbstractDSHandler {
                 idx = fd.setStatementParameters(idx, st);
             }
 
-            try (ResultSet rs = st.executeQuery() ) {
-                while (rs.next())  {
-                    final Map<String, Object> rowPkValues =  new HashMap<>();
-
-                    final Object[] r = new Object[sqlFetchContext.getRequestedFields().size()];
-
-                    int i =0;
+            for (Object v : seekValues) {
+                st.setObject(++idx, v);
+            }
 
-                    // ORIGINAL FIELD ORDER MUST BE PRESERVED
-                    for (DSField dsf: sqlFetchContext.getRequestedFields()) {
-                        Object v = rs.getObject(i + 1);
-                        if (rs.wasNull()) {
-                            v = null;
-                        }
-                        r[i++] = v;
+            try (ResultSet rs = st.executeQuery() ) {
+                final int totalRowsColumn = useWindowCount ? rs.getMetaData().getColumnCount() : -1;
 
-                        if (dsf.isPrimaryKey()) {
-                            if (v == null) {
-                                throw new ContextualRuntimeException(
-                                        "Datasource '%s': Fetch failed, Primary Key value can not be null, but actually it is, field: '%s'."
-                                                .formatted(
-                                                    this.getDataSource().getId(),
-                                                    dsf.getName()
-                                                ),
-                                        sqlFetchContext
-                                );
-                            }
-                            rowPkValues.put(dsf.getName(), v);
-                        }
+                while (rs.next())  {
+                    if (useWindowCount && totalRows[0] == -1) {
+                        totalRows[0] = rs.getInt(totalRowsColumn);
                     }
 
-                    for(int j = 0; j< sqlFetchContext.getRequestedFields().size(); ++j) {
-                        final DSField dsf = sqlFetchContext.getRequestedFields().get(j);
-
-                        r[j] = postProcessFieldValue(sqlFetchContext, rowPkValues, dsf, r[j]);
-
-                        if (!isSubEntityFetchRequired(dsf)) {
-                            continue;
+                    if (sortKeys != null) {
+                        final Object[] key = new Object[sortKeys.size()];
+                        for (int k = 0; k < key.length; ++k) {
+                            key[k] = rs.getObject(sortKeys.get(k).column());
                         }
-
-                        /*
-                         * Create EntitySubFetch for further processing
-                         */
-                        final List<ForeignRelation> ffs = sqlFetchContext.getAdditionalOutputs().get(dsf);
-                        final List<DSField> requestedFields = ffs == null ? null : ffs.stream()
-                                .map(ForeignRelation::field)
-                                .collect(Collectors.toList());
-
-                        r[j] = EntitySubFetch.create( !this.allowAdvancedCriteria(),
-                                this::getDataSourceHandlerById,
-                                this.getDataSource(),
-                                dsf,
-                                requestedFields,
-                                rowPkValues
-                        );
+                        rowKeys.add(key);
                     }
 
-                    final Object[] postProcessed = postProcessRow(sqlFetchContext, r);
-
-                    assert postProcessed.length == r.length;
-                    data.add(postProcessed);
+                    data.add(hasGroupedSummaries ? readRawRow(sqlFetchContext, rs) : readRow(sqlFetchContext, rs));
                 }
             } catch (Throwable t) {
                 if (t instanceof ContextualRuntimeException) {
@@ -710,13 +2057,61 @@ public class JDBCHandler extends AbstractDSHandler {
             }
         }
 
-        // -- Perform subsequent entity fetch requests, if any
-        for(Object[] r: data) {
-            for (int i=0; i< r.length; ++i) {
-                if (r[i]  instanceof EntitySubFetch esf) {
-                    r[i] = esf.fetch(connection);
+        if (progressiveLoading) {
+            if (data.size() > sqlFetchContext.getPageSize()) {
+                // There are more rows, drop the look-ahead row and report an estimated total
+                data.remove(data.size() - 1);
+                totalRows[0] = request.getEndRow() + sqlFetchContext.getPageSize();
+            } else {
+                totalRows[0] = request.getStartRow() + data.size();
+            }
+        }
+
+        if (cursorKey != null) {
+            final Object[] lastKey = data.isEmpty() ? null : rowKeys.get(data.size() - 1);
+
+            if (lastKey == null || Arrays.stream(lastKey).anyMatch(Objects::isNull)) {
+                // sort keys are not nullable, but the page may be empty or a custom query may produce NULLs,
+                // they can not be compared, next page will be fetched with OFFSET
+                keysetCursorCache.remove(cursorKey);
+            } else {
+                keysetCursorCache.put(cursorKey, new KeysetCursorCache.Cursor(request.getStartRow() + data.size(), lastKey));
+            }
+        }
+
+        if (useWindowCount && totalRows[0] == -1) {
+            /*
+             * Empty page does not carry the total, it is either an empty result or a page beyond the last one
+             */
+            totalRows[0] = request.getStartRow() <= 0 ? 0 : fetchTotalRows(sqlFetchContext, connection);
+        }
+
+        if (hasGroupedSummaries) {
+            fetchGroupedSummaries(sqlFetchContext, connection, data);
+            data.replaceAll(r -> completeRow(sqlFetchContext, r));
+        }
+
+        // -- Perform subsequent entity fetch requests, if any, batched per field
+        final int columnCount = sqlFetchContext.getRequestedFields().size();
+        for (int i = 0; i < columnCount && !data.isEmpty(); ++i) {
+            final List<Object[]> rows = new ArrayList<>(data.size());
+            final List<EntitySubFetch> subFetches = new ArrayList<>(data.size());
+
+            for (Object[] r: data) {
+                if (r[i] instanceof EntitySubFetch esf) {
+                    rows.add(r);
+                    subFetches.add(esf);
                 }
             }
+
+            if (subFetches.isEmpty()) {
+                continue;
+            }
+
+            final Object[] fetched = EntitySubFetch.fetch(connection, subFetches);
+            for (int j = 0; j < rows.size(); ++j) {
+                rows.get(j)[i] = fetched[j];
+            }
         }
 
 
@@ -725,6 +2120,78 @@ public class JDBCHandler extends AbstractDSHandler {
                 data);
     }
 
+    /**
+     * Calculates includeSummaryFunction values for the whole page by a single GROUP BY query per field
+     * (per chunk of keys), instead of a correlated sub-select per row.
+     */
+    protected void fetchGroupedSummaries(SQLFetchContext<JDBCHandler> sqlFetchContext, Connection connection, List<Object[]> data) {
+        if (sqlFetchContext.getGroupedSummaryFields().isEmpty() || data.isEmpty()) {
+            return;
+        }
+
+        final List<DSField> fields = sqlFetchContext.getRequestedFields();
+        final int pkIdx = fields.indexOf(getDataSource().getNonCompositePK());
+
+        final Map<Object, List<Object[]>> rowsByKey = new LinkedHashMap<>();
+        final List<Object> keys = new ArrayList<>(data.size());
+        for (Object[] r : data) {
+            final List<Object[]> rows = rowsByKey.computeIfAbsent(EntitySubFetch.normalizeKey(r[pkIdx]), k -> {
+                keys.add(r[pkIdx]);
+                return new ArrayList<>(1);
+            });
+            rows.add(r);
+        }
+
+        for (DSField dsf : sqlFetchContext.getGroupedSummaryFields()) {
+            final int idx = fields.indexOf(dsf);
+            final ImportFromRelation ifr = describeImportFrom(dsf);
+
+            // Correlated COUNT returns 0 for a row without foreign records
+            final Object defaultValue = dsf.getIncludeSummaryFunction() == DSField.SummaryFunctionType.COUNT ? 0L : null;
+            for (Object[] r : data) {
+                r[idx] = defaultValue;
+            }
+
+            for (int from = 0; from < keys.size(); from += EntitySubFetch.BATCH_SIZE) {
+                final List<Object> chunk = keys.subList(from, Math.min(from + EntitySubFetch.BATCH_SIZE, keys.size()));
+                final String query = SQLFetchContext.fetchSummarizedGrouped(ifr, chunk.size());
+
+                if (logger.isTraceEnabled()) {
+                    logger.trace("DataSource %s grouped summary query for field '%s':\n%s\n\nparams:\n%s"
+                            .formatted(
+                                    getDataSource().getId(),
+                                    dsf.getName(),
+                                    query,
+                                    chunk.stream()
+                                            .map("%s"::formatted)
+                                            .collect(Collectors.joining(", "))
+                            )
+                    );
+                }
+
+                try (PreparedStatement st = connection.prepareStatement(query)) {
+                    configureStatement(st, sqlFetchContext.operationBinding());
+                    int i = 0;
+                    for (Object v : chunk) {
+                        st.setObject(++i, v);
+                    }
+
+                    try (ResultSet rs = st.executeQuery()) {
+                        while (rs.next()) {
+                            final Object value = rs.getObject(2);
+                            for (Object[] r : rowsByKey.getOrDefault(EntitySubFetch.normalizeKey(rs.getObject(1)), List.of())) {
+                                r[idx] = value;
+                            }
+                        }
+                    }
+                } catch (SQLException e) {
+                    throw new ContextualRuntimeException("Grouped summary fetch failed, field '%s'."
+                            .formatted(dsf.getName()), e, sqlFetchContext);
+                }
+            }
+        }
+    }
+
     protected Object[] postProcessRow(SQLFetchContext<JDBCHandler> ctx, Object[] row) {
         return row;
     }
@@ -754,6 +2221,23 @@ public class JDBCHandler extends AbstractDSHandler {
                             );
                         }
 
+                        ForeignRelation effectiveField = determineEffectiveField(dsf);
+                        effectiveField = effectiveField.createWithSqlFieldAlias(
+                            operationType == DSRequest.OperationType.FETCH ?
+                                formatColumnNameToAvoidAnyPotentialDuplication(
+                                        effectiveField.dataSource(),
+                                        effectiveField.field()
+                                )
+                                : effectiveField.field().getDbName());
+
+                        if (e.getValue() instanceof Collection<?> c) {
+                            /*
+                             * An array value in a simple criteria matches any of the provided values,
+                             * therefore an empty array matches nothing
+                             */
+                            return FilterData.createInSetFilterData(effectiveField, c);
+                        }
+
                         @SuppressWarnings("SwitchStatementWithTooFewBranches")
                         final Object value = switch (dsf.getType()) {
                             case TEXT -> switch (textMatchStyle) {
@@ -774,15 +2258,6 @@ public class JDBCHandler extends AbstractDSHandler {
                             filterStr = "%s = ?";
                         }
 
-                        ForeignRelation effectiveField = determineEffectiveField(dsf);
-                        effectiveField = effectiveField.createWithSqlFieldAlias(
-                            operationType == DSRequest.OperationType.FETCH ?
-                                formatColumnNameToAvoidAnyPotentialDuplication(
-                                        effectiveField.dataSource(),
-                                        effectiveField.field()
-                                )
-                                : effectiveField.field().getDbName());
-
                         if (value != null) {
                             return new FilterData(effectiveField, filterStr, value);
                         } else {
@@ -872,6 +2347,28 @@ public class JDBCHandler extends AbstractDSHandler {
         }
 
 
+        protected static class InSetFilterData extends FilterData {
+            private final Collection<?> values;
+
+            public InSetFilterData(ForeignRelation dsFieldPair, Collection<?> values) {
+                super(dsFieldPair,
+                        /*
+                         * 'IN ()' is not a valid SQL, an empty set matches nothing
+                         */
+                        values.isEmpty() ?
+                                "1 = 0"
+                                : "%%s IN (%s)".formatted(String.join(", ", Collections.nCopies(values.size(), "?"))),
+                        (Object) values);
+                this.values = values;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public Iterable<Object> values() {
+                return (Iterable<Object>) values;
+            }
+        }
+
         private final ForeignRelation dsFieldPair;
         private final String sqlTemplate;
         private transient String formattedSql;
@@ -935,6 +2432,10 @@ public class JDBCHandler extends AbstractDSHandler {
         public static FilterData createIsNotNullFilterData(ForeignRelation dsFieldPair) {
             return new ISNotNullFilterData(dsFieldPair);
         }
+
+        public static FilterData createInSetFilterData(ForeignRelation dsFieldPair, Collection<?> values) {
+            return new InSetFilterData(dsFieldPair, values);
+        }
     }
 
     public static abstract class AbstractSQLContext<H extends JDBCHandler> {
@@ -46,6 +46,18 @@ public class JDBCHandlerFactory {
             ds.setServerConstructor(a.serverConstructor());
         }
 
+        if (a != null && a.maxConcurrentRequests() > 0) {
+            ds.setMaxConcurrentRequests(a.maxConcurrentRequests());
+
+            if (a.maxQueuedRequests() >= 0) {
+                ds.setMaxQueuedRequests(a.maxQueuedRequests());
+            }
+
+            if (a.maxQueueWaitMillis() >= 0) {
+                ds.setMaxQueueWaitMillis(a.maxQueueWaitMillis());
+            }
+        }
+
         final List<Field> fields = FieldUtils.getAllFieldsList(entityClass);
 
         final List<DSField> dsFields = fields.stream()
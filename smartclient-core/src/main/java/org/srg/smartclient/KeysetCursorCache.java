@@ -0,0 +1,86 @@
+package org.srg.smartclient;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of the keyset pagination cursors.
+ *
+ * A cursor remembers the sort key values of the last row returned to a component,
+ * so the next sequential page can be fetched by seeking (WHERE key > last key) instead of
+ * scanning and discarding all the preceding rows with OFFSET.
+ *
+ * @see <a href="https://use-the-index-luke.com/no-offset">No OFFSET</a>
+ */
+public class KeysetCursorCache {
+    public static final int DEFAULT_MAX_SIZE = 1024;
+
+    /**
+     * Identifies the result set the cursor belongs to.
+     *
+     * @param query final SQL query text and sort keys, it reflects data source, outputs, criteria shape and sort order
+     * @param values criteria values
+     */
+    public record Key(
+            String componentId,
+            String query,
+            List<Object> values
+    ) {}
+
+    /**
+     * @param endRow index of the first row following the last fetched one
+     * @param lastKey sort key values of the last fetched row, in the sort keys order
+     */
+    public record Cursor(
+            int endRow,
+            Object[] lastKey
+    ) {}
+
+    private final int maxSize;
+    private final Map<Key, Cursor> cursors;
+
+    public KeysetCursorCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public KeysetCursorCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.cursors = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Cursor> eldest) {
+                return size() > KeysetCursorCache.this.maxSize;
+            }
+        };
+    }
+
+    public Cursor get(Key key) {
+        synchronized (cursors) {
+            return cursors.get(key);
+        }
+    }
+
+    public void put(Key key, Cursor cursor) {
+        synchronized (cursors) {
+            cursors.put(key, cursor);
+        }
+    }
+
+    public void remove(Key key) {
+        synchronized (cursors) {
+            cursors.remove(key);
+        }
+    }
+
+    public void invalidate() {
+        synchronized (cursors) {
+            cursors.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (cursors) {
+            return cursors.size();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.srg.smartclient;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks the statements executed on behalf of a single client request, so that they can be cancelled
+ * when the client abandons the request (e.g. the connection is closed by the browser).
+ *
+ * The scope is bound to the current thread by {@link #doWithin(QueryCancellation, Callable)},
+ * {@link JDBCHandler} registers every statement it executes within the scope.
+ * Once cancelled, the running statements are cancelled and no new ones are allowed to start.
+ */
+public class QueryCancellation {
+    private static final Logger logger = LoggerFactory.getLogger(QueryCancellation.class);
+    private static final ThreadLocal<QueryCancellation> current = new ThreadLocal<>();
+
+    private final Set<Statement> statements = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+
+    /**
+     * @return null if there is no cancellation scope bound to the current thread
+     */
+    public static QueryCancellation current() {
+        return current.get();
+    }
+
+    /**
+     * Binds the provided cancellation to the current thread for the duration of the callable,
+     * it may be bound to several threads at once, e.g. to perform the queued requests concurrently.
+     *
+     * @param cancellation can be null, then the callable is called as is
+     */
+    public static <T> T doWithin(QueryCancellation cancellation, Callable<T> callable) throws Exception {
+        if (cancellation == null) {
+            return callable.call();
+        }
+
+        final QueryCancellation previous = current.get();
+        current.set(cancellation);
+        try {
+            return callable.call();
+        } finally {
+            if (previous == null) {
+                current.remove();
+            } else {
+                current.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Registers the statement within the current scope, if any.
+     *
+     * @throws SQLException if the current request has been cancelled already
+     */
+    public static void register(Statement statement) throws SQLException {
+        final QueryCancellation c = current.get();
+        if (c == null) {
+            return;
+        }
+
+        c.checkCancelled();
+        c.statements.removeIf(QueryCancellation::isClosed);
+        c.statements.add(statement);
+
+        // cancel() may have iterated the statements before this one has been added
+        c.checkCancelled();
+    }
+
+    public void cancel() {
+        if (cancelled) {
+            return;
+        }
+        cancelled = true;
+
+        for (Statement st : statements) {
+            try {
+                if (!isClosed(st)) {
+                    st.cancel();
+                }
+            } catch (SQLException ex) {
+                logger.debug("Statement can't be cancelled.", ex);
+            }
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    private static boolean isClosed(Statement st) {
+        try {
+            return st.isClosed();
+        } catch (SQLException ex) {
+            return true;
+        }
+    }
+
+    private void checkCancelled() throws SQLException {
+        if (cancelled) {
+            throw new SQLNonTransientException("Request has been cancelled by the client.");
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.srg.smartclient;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.srg.smartclient.isomorphic.Config;
+import org.srg.smartclient.utils.Utils;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Read replicas of a database, picks a replica for each read only operation.
+ *
+ * @param <T> replica handle: a connection name, a {@link javax.sql.DataSource}, etc.
+ */
+public class ReplicaSet<T> {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaSet.class);
+
+    private final List<T> replicas;
+    private final Config.SQLConfig.ReplicaBalancing balancing;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * Number of the operations that are being performed by each replica at the moment
+     */
+    private final AtomicIntegerArray inFlight;
+
+    public ReplicaSet(List<T> replicas, Config.SQLConfig.ReplicaBalancing balancing) {
+        if (replicas.isEmpty()) {
+            throw new IllegalArgumentException("At least one replica must be provided.");
+        }
+
+        this.replicas = List.copyOf(replicas);
+        this.balancing = balancing;
+        this.inFlight = new AtomicIntegerArray(replicas.size());
+    }
+
+    public void withReplicaDo(Utils.CheckedFunction<T, Void> callback) throws Exception {
+        final int idx = select();
+
+        inFlight.incrementAndGet(idx);
+        try {
+            callback.apply(replicas.get(idx));
+        } finally {
+            inFlight.decrementAndGet(idx);
+        }
+    }
+
+    protected int select() {
+        final int size = replicas.size();
+        final int start = Math.floorMod(next.getAndIncrement(), size);
+
+        if (balancing != Config.SQLConfig.ReplicaBalancing.leastLoaded) {
+            return start;
+        }
+
+        // scan from the round-robin position, so that ties are spread evenly
+        int best = start;
+        for (int i = 1; i < size; ++i) {
+            final int idx = (start + i) % size;
+            if (inFlight.get(idx) < inFlight.get(best)) {
+                best = idx;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Marks the connection as read only for the callback, it allows the driver to route or optimize the queries
+     * and makes the replica to reject an accidental write.
+     */
+    public static void readOnlyDo(Connection connection, Utils.CheckedFunction<Connection, Void> callback) throws Exception {
+        connection.setReadOnly(true);
+        try {
+            callback.apply(connection);
+        } finally {
+            try {
+                connection.setReadOnly(false);
+            } catch (SQLException ex) {
+                logger.debug("Can't reset connection read only mode.", ex);
+            }
+        }
+    }
+}
@@ -42,7 +42,7 @@ public class SQLAddContext<H extends JDBCHandler> extends JDBCHandler.AbstractSQ
         this.addSQL = """
                         INSERT INTO  %s 
                             (%s)
-                        VALUES (%s);                            
+                        VALUES (%s)                             
                     """.formatted(
                 dataSource().getTableName(),
                 insertSQL,
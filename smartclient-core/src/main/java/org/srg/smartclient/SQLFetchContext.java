@@ -13,18 +13,30 @@ import org.srg.smartclient.utils.ContextualRuntimeException;
 import java.io.IOException;
 import java.util.*;
 import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class SQLFetchContext<H extends JDBCHandler> extends JDBCHandler.AbstractSQLContext<JDBCHandler> {
     private static final Logger logger = LoggerFactory.getLogger(SQLFetchContext.class);
+    /**
+     * Page size starting from which summaries are calculated by a grouped query rather than by a correlated
+     * sub-select per row, unless the strategy is set for the field explicitly.
+     */
+    public static final int GROUPED_SUMMARY_PAGE_SIZE = 100;
+    private static final Pattern OPAQUE_COLUMN = Pattern.compile("\\bopaque\\.(\\w+)");
+
     private String genericQuery;
+    private FlatQuery flatQuery;
     private int pageSize;
     private String orderClause;
     private String paginationClause;
 
-    private final List<DSField> requestedFields = new LinkedList<>();
+    private final List<DSField> requestedFields = new ArrayList<>();
     private final Map<DSField, List<RelationSupport.ForeignRelation>> additionalOutputs = new HashMap<>();
+    private final List<DSField> groupedSummaryFields = new LinkedList<>();
+    private RowLayout rowLayout;
     private List<JDBCHandler.IFilterData> filterData = new LinkedList<>();
 
     private Map<String, Object> templateContext;
@@ -44,6 +56,32 @@ public class SQLFetchContext<H extends JDBCHandler> extends JDBCHandler.Abstract
         return additionalOutputs;
     }
 
+    /**
+     * Requested fields with includeSummaryFunction, that are fetched by a subsequent grouped query
+     *
+     * @see #fetchSummarizedGrouped(RelationSupport.ImportFromRelation, int)
+     */
+    public List<DSField> getGroupedSummaryFields() {
+        return groupedSummaryFields;
+    }
+
+    /**
+     * Describes how the fetched row is decoded, it depends on the requested fields only.
+     *
+     * @param readers column readers, in the requested fields order
+     * @param pkColumns indexes of the primary key columns
+     * @param subEntityColumns indexes of the columns that are populated by a subsequent sub-entity fetch
+     */
+    public record RowLayout(
+            ColumnReader[] readers,
+            int[] pkColumns,
+            int[] subEntityColumns
+    ) {}
+
+    public RowLayout getRowLayout() {
+        return rowLayout;
+    }
+
     public List<JDBCHandler.IFilterData> getFilterData() {
         return filterData;
     }
@@ -121,13 +159,18 @@ public class SQLFetchContext<H extends JDBCHandler> extends JDBCHandler.Abstract
                             );
                     }
 
-                    final String query = fetchSummarized(ifr);
-                    effectiveColumn = """
-                            (
-                               /*  %s  */
-                               %s
-                            ) 
-                            """.formatted(extraInfo, query);
+                    if (groupedSummaryFields.contains(dsf)) {
+                        effectiveColumn = "NULL  /*  %s (will be fetched by a subsequent grouped query)  */"
+                                .formatted(extraInfo);
+                    } else {
+                        final String query = fetchSummarized(ifr);
+                        effectiveColumn = """
+                                (
+                                   /*  %s  */
+                                   %s
+                                ) 
+                                """.formatted(extraInfo, query);
+                    }
 
                 } else {
                     effectiveColumn = effectiveRelation.formatAsSQL();
@@ -168,6 +211,35 @@ public class SQLFetchContext<H extends JDBCHandler> extends JDBCHandler.Abstract
         return paginationClause;
     }
 
+    /**
+     * @param extraRows number of rows to fetch beyond the requested page, it allows to find out whether more rows exist
+     */
+    public String getPaginationClause(int extraRows) {
+        if (extraRows == 0 || pageSize <= 0) {
+            return paginationClause;
+        }
+
+        return formatPaginationClause(request().getEndRow() + extraRows, request().getStartRow());
+    }
+
+    /**
+     * Pagination clause of the seek query, that starts right after the last row of the previous page
+     * by itself, therefore the rows are not skipped.
+     *
+     * @param extraRows number of rows to fetch beyond the requested page
+     */
+    public String getSeekPaginationClause(int extraRows) {
+        return formatPaginationClause(pageSize + extraRows, -1);
+    }
+
+    /**
+     * @param offset number of rows to skip, -1 if there is nothing to skip
+     */
+    protected String formatPaginationClause(int limit, int offset) {
+        return offset < 0 ? String.format("LIMIT %d", limit)
+                : String.format("LIMIT %d OFFSET %d", limit, offset);
+    }
+
     public int getPageSize() {
         return pageSize;
     }
@@ -176,12 +248,189 @@ public class SQLFetchContext<H extends JDBCHandler> extends JDBCHandler.Abstract
         return genericQuery;
     }
 
+    /**
+     * Fetch query parts that do not require the opaque sub-query: neither criteria nor sort refer
+     * to a calculated column, therefore predicates and sort can use the table columns directly and
+     * the database is able to use indexes on them.
+     *
+     * @param columns opaque column alias to the correspondent table column
+     */
+    public record FlatQuery(
+            String selectClause,
+            String fromClause,
+            String whereClause,
+            Map<String, String> columns
+    ) {}
+
+    public FlatQuery getFlatQuery() {
+        return flatQuery;
+    }
+
+    public boolean isFlat() {
+        return flatQuery != null;
+    }
+
+    /**
+     * @param column opaque column alias
+     * @return column reference that can be used in WHERE and ORDER BY clauses of the fetch query
+     */
+    public String columnReference(String column) {
+        if (flatQuery != null) {
+            final String c = flatQuery.columns().get(column);
+            if (c != null) {
+                return c;
+            }
+        }
+        return "opaque." + column;
+    }
+
+    /**
+     * @param extraColumns columns to add to the select list, starts with a comma
+     * @param extraCondition condition in terms of {@link #columnReference(String)}, or null
+     */
+    public String buildFetchQuery(String extraColumns, String extraCondition, String orderClause, String paginationClause) {
+        if (flatQuery == null) {
+            if (extraCondition == null) {
+                //noinspection SqlNoDataSourceInspection
+                return """
+                     SELECT *%s FROM %s
+                        %s
+                        %s
+                """.formatted(extraColumns, genericQuery, orderClause, paginationClause);
+            }
+
+            //noinspection SqlNoDataSourceInspection
+            return """
+                 SELECT *%s FROM (
+                    SELECT * FROM %s
+                 ) opaque
+                    WHERE %s
+                    %s
+                    %s
+            """.formatted(extraColumns, genericQuery, extraCondition, orderClause, paginationClause);
+        }
+
+        //noinspection SqlNoDataSourceInspection
+        return """
+             SELECT %s%s
+                FROM %s
+                %s
+                %s
+                %s
+        """.formatted(
+                flatQuery.selectClause(),
+                extraColumns,
+                flatQuery.fromClause(),
+                formatFlatWhere(extraCondition),
+                orderClause,
+                paginationClause
+        );
+    }
+
+    public String buildCountQuery() {
+        if (flatQuery == null) {
+            //noinspection SqlNoDataSourceInspection
+            return "SELECT count(*) FROM %s".formatted(genericQuery);
+        }
+
+        //noinspection SqlNoDataSourceInspection
+        return "SELECT count(*) FROM %s %s".formatted(flatQuery.fromClause(), formatFlatWhere(null));
+    }
+
+    private String formatFlatWhere(String extraCondition) {
+        final String where = Stream.of(
+                    flatQuery.whereClause(),
+                    extraCondition == null ? null : "(%s)".formatted(extraCondition)
+                )
+                .filter(c -> c != null && !c.isBlank())
+                .collect(Collectors.joining("\n\t\t AND "));
+
+        return where.isEmpty() ? "" : "WHERE " + where;
+    }
+
+    /**
+     * Column of the opaque query that is used as a keyset pagination key
+     */
+    public record SortKey(String column, boolean descending) {}
+
+    /**
+     * Returns sort keys that define a deterministic order: requested sortBy fields followed by the
+     * primary key as a tie-breaker.
+     *
+     * The seek predicate does not match NULLs, and databases differ in where NULLs are sorted,
+     * therefore every sort field must be either the primary key or a required field of this data source.
+     *
+     * @return null if keyset pagination is not applicable, i.e. data source has a composite PK,
+     *          sort by a field that is fetched by a subsequent request, or by a nullable field
+     */
+    public List<SortKey> getKeysetSortKeys() {
+        if (dataSource().getPKFields().size() != 1) {
+            return null;
+        }
+
+        final DSField pk = dataSource().getNonCompositePK();
+        final List<SortKey> keys = new ArrayList<>();
+        boolean pkIncluded = false;
+
+        if (request().getSortBy() != null) {
+            for (String s : request().getSortBy()) {
+                final boolean descending = s.charAt(0) == '-';
+                final String fn = s.charAt(0) == '-' || s.charAt(0) == '+' ? s.substring(1) : s;
+
+                final DSField dsf = dsHandler().getField(fn);
+                if (dsf == null || !requestedFields.contains(dsf) || AbstractDSHandler.isSubEntityFetchRequired(dsf)) {
+                    return null;
+                }
+
+                // included fields are outer joined, they may be NULL even if required
+                if (!dsf.equals(pk) && (!dsf.isRequired() || dsf.isIncludeField())) {
+                    return null;
+                }
+
+                keys.add(new SortKey(formatFieldNameForSqlOrderClause(dsf), descending));
+                pkIncluded |= dsf.equals(pk);
+            }
+        }
+
+        if (!pkIncluded) {
+            if (!requestedFields.contains(pk)) {
+                return null;
+            }
+            keys.add(new SortKey(formatFieldNameForSqlOrderClause(pk), false));
+        }
+
+        return keys;
+    }
+
     protected void init() throws IOException, TemplateException {
         this.pageSize = request().getEndRow() == -1 ? -1 : request().getEndRow() - request().getStartRow();
 
         // -- LIMIT
-        this.paginationClause = pageSize <= 0 ? "" : String.format("LIMIT %d OFFSET %d",
-                request().getEndRow(), request().getStartRow());
+        this.paginationClause = pageSize <= 0 ? "" : formatPaginationClause(request().getEndRow(), request().getStartRow());
+
+        // -- WHERE
+        final Predicate<String> exclusionPredicate = createCriteriaExclusionPredicate(
+                operationBinding() != null? operationBinding().getExcludeCriteriaFields() : null);
+
+        this.filterData = dsHandler().generateFilterData(DSRequest.OperationType.FETCH,
+                request().getTextMatchStyle(),
+                request().getData(),
+                exclusionPredicate
+            );
+
+
+        final String whereClause = this.getFilterData().isEmpty() ?  "" : this.getFilterData().stream()
+                .map(fd -> fd.sql("opaque"))
+                .collect(Collectors.joining("\n\t\t AND "));
+
+        // -- re-use compiled plan, if any
+        final FetchPlanCache.Key planKey = createPlanKey(whereClause);
+        final FetchPlanCache.Plan cachedPlan = planKey == null ? null : dsHandler().getFetchPlanCache().get(planKey);
+
+        if (cachedPlan != null) {
+            applyPlan(cachedPlan);
+            return;
+        }
 
         // -- fetch data
         this.orderClause = request().getSortBy() == null ? "" :  " ORDER BY \n" +
@@ -373,6 +622,8 @@ public class SQLFetchContext<H extends JDBCHandler> extends JDBCHandler.Abstract
         effectiveFields.addAll(getRequestedFields());
         effectiveFields.addAll(extraFields);
 
+        this.groupedSummaryFields.addAll(determineGroupedSummaryFields());
+
         final String selectClause = effectiveFields
                 .stream()
                 .map(this::formatFieldNameForSqlSelectClause)
@@ -383,7 +634,124 @@ public class SQLFetchContext<H extends JDBCHandler> extends JDBCHandler.Abstract
         final String fromClause = dataSource().getTableName();
 
         // -- JOIN ON
-        final List<RelationSupport.ForeignKeyRelation> foreignKeyRelations = dsHandler().getFields()
+        /*
+         * Only relations reachable from the requested and criteria fields are joined,
+         * custom SQL may refer to any joined table, therefore all the relations are joined for it.
+         */
+        final boolean pruneJoins = isJoinPruningAllowed(effectiveFields);
+        final List<RelationSupport.ForeignKeyRelation> foreignKeyRelations =
+                collectForeignKeyRelations(pruneJoins ? effectiveFields : dsHandler().getFields());
+
+        if (pruneJoins && logger.isTraceEnabled()) {
+            final List<RelationSupport.ForeignKeyRelation> pruned = collectForeignKeyRelations(dsHandler().getFields());
+            pruned.removeAll(foreignKeyRelations);
+
+            if (!pruned.isEmpty()) {
+                logger.trace("DataSource %s: %d join(s) pruned as not required by the request:\n%s"
+                        .formatted(
+                                dataSource().getId(),
+                                pruned.size(),
+                                pruned.stream()
+                                        .map(Object::toString)
+                                        .collect(Collectors.joining("\n"))
+                        )
+                );
+            }
+        }
+
+        final String joinClause = JDBCHandler.AbstractSQLContext.generateSQLJoin(foreignKeyRelations);
+
+
+        // -- generate query
+        {
+            this.templateContext = SQLTemplateEngine.createContext(request(), selectClause, fromClause, joinClause, whereClause, "");
+
+            // Custom select expressions may contain placeholders as well
+            SQLTemplateEngine.resolveNested(templateContext, "defaultSelectClause");
+            templateContext.put("effectiveSelectClause", templateContext.get("defaultSelectClause"));
+
+            final String effectiveFROM = operationBinding() == null
+                    || operationBinding().getTableClause() == null
+                    || operationBinding().getTableClause().isBlank()
+                    ? fromClause : operationBinding().getTableClause();
+            templateContext.put("effectiveTableClause", effectiveFROM);
+
+            final String effectiveWhere = operationBinding() == null
+                    || operationBinding().getWhereClause() == null
+                    || operationBinding().getWhereClause().isBlank()
+                    ? whereClause : operationBinding().getWhereClause();
+            templateContext.put("effectiveWhereClause", effectiveWhere);
+
+
+            final String effectiveJoin = operationBinding() == null
+                    || operationBinding().getAnsiJoinClause() == null
+                    || operationBinding().getAnsiJoinClause().isBlank()
+                    ? joinClause : operationBinding().getAnsiJoinClause();
+            templateContext.put("effectiveAnsiJoinClause", effectiveJoin);
+
+
+            final String defaultQuery = """
+                    (
+                        SELECT ${effectiveSelectClause}
+                            FROM ${effectiveTableClause}
+                        <#if effectiveAnsiJoinClause?has_content>
+                            ${effectiveAnsiJoinClause}
+                        </#if>
+                    ) opaque                                                                                                              
+                    <#if effectiveWhereClause?has_content>
+                        WHERE ${effectiveWhereClause}
+                    </#if>                                                                                                              
+                    """;
+
+            /*
+             * FreeMarker does not support recursive interpolations, therefore the clauses provided
+             * by the operation binding are rendered first, and the whole query is rendered in a single pass.
+             */
+            SQLTemplateEngine.resolveNested(templateContext,
+                    "effectiveTableClause", "effectiveAnsiJoinClause", "effectiveWhereClause");
+
+            if (operationBinding() == null
+                    || operationBinding().getCustomSQL() == null
+                    || operationBinding().getCustomSQL().isBlank()) {
+                this.genericQuery = SQLTemplateEngine.processSQL(templateContext, defaultQuery);
+
+                this.flatQuery = createFlatQuery(effectiveFields, whereClause);
+                if (flatQuery != null) {
+                    this.orderClause = replaceOpaqueColumns(orderClause, flatQuery.columns());
+                }
+            } else {
+                // customSQL template is pre-compiled by the handler, therefore it must be rendered as is
+                this.genericQuery = """
+                    (
+                        %s
+                    ) a
+                    """.formatted(SQLTemplateEngine.processSQL(templateContext, operationBinding().getCustomSQL()));
+            }
+        }
+
+        this.rowLayout = createRowLayout();
+
+        if (planKey != null && isPlanCacheable(selectClause, joinClause)) {
+            dsHandler().getFetchPlanCache().put(planKey,
+                    new FetchPlanCache.Plan(
+                            List.copyOf(requestedFields),
+                            Map.copyOf(additionalOutputs),
+                            selectClause,
+                            fromClause,
+                            joinClause,
+                            whereClause,
+                            orderClause,
+                            genericQuery,
+                            flatQuery,
+                            List.copyOf(groupedSummaryFields),
+                            rowLayout
+                    )
+            );
+        }
+    }
+
+    protected List<RelationSupport.ForeignKeyRelation> collectForeignKeyRelations(Collection<DSField> fields) {
+        return fields
                 .stream()
                 .filter(dsf -> dsf.isIncludeField()
                         /*
@@ -427,85 +795,233 @@ public class SQLFetchContext<H extends JDBCHandler> extends JDBCHandler.Abstract
                     }
                 })
                 .collect(Collectors.toList());
+    }
 
-        final String joinClause = JDBCHandler.AbstractSQLContext.generateSQLJoin(foreignKeyRelations);
+    protected boolean hasCustomClauses() {
+        return operationBinding() != null
+                && Stream.of(
+                        operationBinding().getTableClause(),
+                        operationBinding().getWhereClause(),
+                        operationBinding().getAnsiJoinClause(),
+                        operationBinding().getCustomSQL()
+                    )
+                    .anyMatch(c -> c != null && !c.isBlank());
+    }
 
+    protected static boolean hasCustomSelectExpression(DSField dsf) {
+        return dsf.isCustomSQL()
+                && dsf.getCustomSelectExpression() != null
+                && !dsf.getCustomSelectExpression().isBlank();
+    }
 
-        // -- WHERE
-        final Predicate<String> exclusionPredicate = createCriteriaExclusionPredicate(
-                operationBinding() != null? operationBinding().getExcludeCriteriaFields() : null);
+    protected boolean isJoinPruningAllowed(Collection<DSField> effectiveFields) {
+        if (hasCustomClauses()) {
+            return false;
+        }
 
-        this.filterData = dsHandler().generateFilterData(DSRequest.OperationType.FETCH,
-                request().getTextMatchStyle(),
-                request().getData(),
-                exclusionPredicate
+        // Custom select expression may refer to a joined table as well
+        return effectiveFields.stream()
+                .noneMatch(SQLFetchContext::hasCustomSelectExpression);
+    }
+
+    /**
+     * Opaque sub-query hides the table columns from the optimizer, it is required only if criteria or sort
+     * refer to a calculated column (custom select expression, summary or sub-entity) or if the query is customized
+     * by the operation binding.
+     *
+     * @return null, if the opaque sub-query is required
+     */
+    protected FlatQuery createFlatQuery(Collection<DSField> effectiveFields, String whereClause) {
+        if (hasCustomClauses()) {
+            return null;
+        }
+
+        final Map<String, String> columns = new HashMap<>();
+        for (DSField dsf : effectiveFields) {
+            if (AbstractDSHandler.isSubEntityFetchRequired(dsf)
+                    || dsHandler().isIncludeSummaryRequired(dsf)) {
+                continue;
+            }
+
+            final RelationSupport.ForeignRelation effectiveRelation = dsHandler().determineEffectiveField(dsf);
+            if (hasCustomSelectExpression(effectiveRelation.field())) {
+                continue;
+            }
+
+            columns.put(
+                    JDBCHandler.formatColumnNameToAvoidAnyPotentialDuplication(effectiveRelation.dataSource(), effectiveRelation.field()),
+                    effectiveRelation.formatAsSQL()
             );
+        }
 
+        if (!refersToColumnsOnly(whereClause, columns)
+                || !refersToColumnsOnly(orderClause, columns)) {
+            return null;
+        }
 
-        final String whereClause = this.getFilterData().isEmpty() ?  "" : this.getFilterData().stream()
-                .map(fd -> fd.sql("opaque"))
-                .collect(Collectors.joining("\n\t\t AND "));
+        final String joinClause = (String) templateContext.get("effectiveAnsiJoinClause");
+        return new FlatQuery(
+                (String) templateContext.get("effectiveSelectClause"),
+                joinClause == null || joinClause.isBlank()
+                        ? (String) templateContext.get("effectiveTableClause")
+                        : templateContext.get("effectiveTableClause") + "\n" + joinClause,
+                replaceOpaqueColumns(whereClause, columns),
+                Collections.unmodifiableMap(columns)
+        );
+    }
 
-        // -- generate query
-        {
-            this.templateContext = SQLTemplateEngine.createContext(request(), selectClause, fromClause, joinClause, whereClause, "");
+    private static boolean refersToColumnsOnly(String sql, Map<String, String> columns) {
+        final Matcher m = OPAQUE_COLUMN.matcher(sql);
+        while (m.find()) {
+            if (!columns.containsKey(m.group(1))) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-            templateContext.put("effectiveSelectClause", selectClause);
+    private static String replaceOpaqueColumns(String sql, Map<String, String> columns) {
+        return OPAQUE_COLUMN.matcher(sql)
+                .replaceAll(r -> Matcher.quoteReplacement(columns.get(r.group(1))));
+    }
 
-            final String effectiveFROM = operationBinding() == null
-                    || operationBinding().getTableClause() == null
-                    || operationBinding().getTableClause().isBlank()
-                    ? fromClause : operationBinding().getTableClause();
-            templateContext.put("effectiveTableClause", effectiveFROM);
+    protected RowLayout createRowLayout() {
+        final boolean customQuery = operationBinding() != null
+                && operationBinding().getCustomSQL() != null
+                && !operationBinding().getCustomSQL().isBlank();
 
-            final String effectiveWhere = operationBinding() == null
-                    || operationBinding().getWhereClause() == null
-                    || operationBinding().getWhereClause().isBlank()
-                    ? whereClause : operationBinding().getWhereClause();
-            templateContext.put("effectiveWhereClause", effectiveWhere);
+        final ColumnReader[] readers = new ColumnReader[requestedFields.size()];
+        final List<Integer> pkColumns = new ArrayList<>(1);
+        final List<Integer> subEntityColumns = new ArrayList<>(0);
 
+        int i = 0;
+        for (DSField dsf : requestedFields) {
+            final boolean subEntity = AbstractDSHandler.isSubEntityFetchRequired(dsf);
+            final boolean calculated = customQuery
+                    || subEntity
+                    || dsHandler().isIncludeSummaryRequired(dsf)
+                    || hasCustomSelectExpression(dsHandler().determineEffectiveField(dsf).field());
 
-            final String effectiveJoin = operationBinding() == null
-                    || operationBinding().getAnsiJoinClause() == null
-                    || operationBinding().getAnsiJoinClause().isBlank()
-                    ? joinClause : operationBinding().getAnsiJoinClause();
-            templateContext.put("effectiveAnsiJoinClause", effectiveJoin);
+            readers[i] = ColumnReader.forField(dsf, calculated);
 
+            if (dsf.isPrimaryKey()) {
+                pkColumns.add(i);
+            }
 
-            final String defaultQuery = """
-                    (
-                        SELECT ${effectiveSelectClause}
-                            FROM ${effectiveTableClause}
-                        <#if effectiveAnsiJoinClause?has_content>
-                            ${effectiveAnsiJoinClause}
-                        </#if>
-                    ) opaque                                                                                                              
-                    <#if effectiveWhereClause?has_content>
-                        WHERE ${effectiveWhereClause}
-                    </#if>                                                                                                              
-                    """;
+            if (subEntity) {
+                subEntityColumns.add(i);
+            }
+            ++i;
+        }
 
-            final String effectiveQuery = operationBinding() == null
-                    || operationBinding().getCustomSQL() == null
-                    || operationBinding().getCustomSQL().isBlank()
-                    ? defaultQuery : """
-                    (
-                        %s
-                    ) a
-                    """.formatted(operationBinding().getCustomSQL());
+        return new RowLayout(
+                readers,
+                pkColumns.stream().mapToInt(Integer::intValue).toArray(),
+                subEntityColumns.stream().mapToInt(Integer::intValue).toArray()
+        );
+    }
+
+    protected Set<String> getCriteriaFieldNames() {
+        final Set<String> criteriaFields;
+        if (request().getData() instanceof Map<?,?> m) {
+            criteriaFields = new TreeSet<>();
+            m.keySet().forEach( k -> criteriaFields.add(String.valueOf(k)));
+        } else if (request().getData() instanceof AdvancedCriteria ac) {
+            criteriaFields = new TreeSet<>(ac.getCriteriaFieldNames());
+        } else {
+            criteriaFields = Set.of();
+        }
+        return criteriaFields;
+    }
+
+    protected boolean isLargePage() {
+        return pageSize <= 0 || pageSize >= GROUPED_SUMMARY_PAGE_SIZE;
+    }
 
-            this.genericQuery = SQLTemplateEngine.processSQL(templateContext, effectiveQuery);
+    /**
+     * Grouped query needs the page PK values, and the summary value is not available to the SQL,
+     * therefore fields used in criteria or sort keep the correlated sub-select.
+     */
+    protected List<DSField> determineGroupedSummaryFields() {
+        if (hasCustomClauses()
+                || dataSource().getPKFields().size() != 1
+                || !requestedFields.contains(dataSource().getNonCompositePK())) {
+            return List.of();
+        }
 
-            /*
-             *  It seems that FreeMarker does not support recursive interpolations, therefore, as temporary workaround,
-             *  it is required to re-process  Query to do interpolations for the placeholders that
-             *  was introduced during the first interpolation.
-             */
-            this.genericQuery = SQLTemplateEngine.processSQL(templateContext,this.genericQuery);
+        final Set<String> excluded = new HashSet<>(getCriteriaFieldNames());
+        if (request().getSortBy() != null) {
+            for (String s : request().getSortBy()) {
+                excluded.add(s.charAt(0) == '-' || s.charAt(0) == '+' ? s.substring(1) : s);
+            }
         }
+
+        return requestedFields.stream()
+                .filter(dsf -> dsHandler().isIncludeSummaryRequired(dsf)
+                        && !excluded.contains(dsf.getName())
+                        && (dsf.getIncludeSummaryStrategy() == null ?
+                                isLargePage() : dsf.getIncludeSummaryStrategy() == DSField.IncludeSummaryStrategy.GROUPED))
+                .collect(Collectors.toList());
     }
 
-    public static String fetchSummarized(RelationSupport.ImportFromRelation ifr) {
+    protected FetchPlanCache.Key createPlanKey(String whereClause) {
+        final Set<String> criteriaFields = getCriteriaFieldNames();
+
+        return new FetchPlanCache.Key(
+                dataSource().getId(),
+                request().getOperationId(),
+                request().getOutputs(),
+                request().getAdditionalOutputs(),
+                request().getSortBy() == null ? null : List.copyOf(request().getSortBy()),
+                request().getTextMatchStyle(),
+                List.copyOf(criteriaFields),
+                whereClause,
+                isLargePage()
+        );
+    }
+
+    /**
+     * Templates that refer to the criteria values produce the SQL text that depends on the values,
+     * such plans must not be re-used.
+     */
+    protected boolean isPlanCacheable(String selectClause, String joinClause) {
+        final List<String> templates = new ArrayList<>(List.of(selectClause, joinClause));
+
+        if (operationBinding() != null) {
+            Stream.of(
+                    operationBinding().getTableClause(),
+                    operationBinding().getWhereClause(),
+                    operationBinding().getAnsiJoinClause(),
+                    operationBinding().getCustomSQL()
+                )
+                .filter(Objects::nonNull)
+                .forEach(templates::add);
+        }
+
+        return templates.stream()
+                .noneMatch(t -> t.contains("criteria") || t.contains("Criteria"));
+    }
+
+    private void applyPlan(FetchPlanCache.Plan plan) {
+        this.requestedFields.addAll(plan.requestedFields());
+        this.additionalOutputs.putAll(plan.additionalOutputs());
+        this.groupedSummaryFields.addAll(plan.groupedSummaryFields());
+        this.rowLayout = plan.rowLayout();
+        this.orderClause = plan.orderClause();
+        this.genericQuery = plan.genericQuery();
+        this.flatQuery = plan.flatQuery();
+        this.templateContext = SQLTemplateEngine.createContext(request(), plan.selectClause(), plan.fromClause(),
+                plan.joinClause(), plan.whereClause(), "");
+    }
+
+    /**
+     * @param aggregate summary function applied to the foreign display column
+     * @param fromClause foreign table with the join table, if any
+     * @param keyColumn column that refers to the PK of the including data source
+     */
+    private record SummaryQuery(String aggregate, String fromClause, String keyColumn) {}
+
+    private static SummaryQuery describeSummaryQuery(RelationSupport.ImportFromRelation ifr) {
         final DSField sourceField = ifr.sourceField();
         if (!sourceField.isIncludeField()
                 || !sourceField.isMultiple()) {
@@ -570,11 +1086,8 @@ public class SQLFetchContext<H extends JDBCHandler> extends JDBCHandler.Abstract
                 .wrap();
         }
 
-        final StringBuilder sbld = new StringBuilder("""
-                SELECT %s
-                    FROM %s %s
-                """.formatted(
-                        effectiveField,
+        final StringBuilder sbld = new StringBuilder("%s %s"
+                .formatted(
                         fkr.foreign().dataSource().getTableName(),
                         effectiveRelatedTableAlias
                 )
@@ -594,17 +1107,47 @@ public class SQLFetchContext<H extends JDBCHandler> extends JDBCHandler.Abstract
             alias = effectiveRelatedTableAlias;
         }
 
-        // -- where
-        final DSField sourcePk = ifr.dataSource().getNonCompositePK();
         final DSField foreignPk = ifr.toForeignKeyRelation().foreign().field();
+        return new SummaryQuery(effectiveField, sbld.toString(), "%s.%s".formatted(alias, foreignPk.getDbName()));
+    }
+
+    public static String fetchSummarized(RelationSupport.ImportFromRelation ifr) {
+        final SummaryQuery q = describeSummaryQuery(ifr);
+        final DSField sourcePk = ifr.dataSource().getNonCompositePK();
 
-        sbld.append('\n')
-                .append("WHERE %s.%s = %s.%s".formatted(
+        return """
+                SELECT %s
+                    FROM %s
+                WHERE %s.%s = %s
+                """.formatted(
+                        q.aggregate(),
+                        q.fromClause(),
                         ifr.dataSource().getTableName(), sourcePk.getDbName(),
-                        alias, foreignPk.getDbName()
-                    )
+                        q.keyColumn()
                 );
+    }
 
-        return sbld.toString();
+    /**
+     * Calculates the summary for a set of the including data source PK values at once,
+     * returns (key, value) rows, a key without foreign records is not returned.
+     *
+     * @param keyCount number of the PK value parameters
+     */
+    public static String fetchSummarizedGrouped(RelationSupport.ImportFromRelation ifr, int keyCount) {
+        final SummaryQuery q = describeSummaryQuery(ifr);
+
+        return """
+                SELECT %s, %s
+                    FROM %s
+                WHERE %s IN (%s)
+                GROUP BY %s
+                """.formatted(
+                        q.keyColumn(),
+                        q.aggregate(),
+                        q.fromClause(),
+                        q.keyColumn(),
+                        String.join(", ", Collections.nCopies(keyCount, "?")),
+                        q.keyColumn()
+                );
     }
 }
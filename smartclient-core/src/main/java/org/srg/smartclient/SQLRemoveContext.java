@@ -0,0 +1,68 @@
+package org.srg.smartclient;
+
+import org.srg.smartclient.isomorphic.DSField;
+import org.srg.smartclient.isomorphic.DSRequest;
+import org.srg.smartclient.isomorphic.OperationBinding;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+public class SQLRemoveContext<H extends JDBCHandler> extends JDBCHandler.AbstractSQLContext {
+    private String removeSQL;
+
+    private List<JDBCHandler.IFilterData> pkFieldData;
+
+    public SQLRemoveContext(H dsHandler, DSRequest request, OperationBinding operationBinding) throws Exception {
+        super(dsHandler, request, operationBinding);
+        init();
+    }
+
+    protected void init() {
+        final Predicate<String> exclusionPredicate = createCriteriaExclusionPredicate(
+                operationBinding() != null? operationBinding().getExcludeCriteriaFields() : null);
+
+        /*
+         * Client sends the whole record (including metadata), but the record is identified by the PK only
+         */
+        this.pkFieldData = dsHandler().generateFilterData(
+                DSRequest.OperationType.REMOVE,
+                DSRequest.TextMatchStyle.EXACT,
+                request().getData(),
+                exclusionPredicate.or(fn -> {
+                    final DSField dsf = dataSource().getField(fn);
+                    return dsf == null || !dsf.isPrimaryKey();
+                })
+            );
+
+        if (pkFieldData.size() != dataSource().getPKFields().size()) {
+            throw new RuntimeException("Bad request: operation 'REMOVE', data source '%s': all the PK fields must be provided in the 'data' field."
+                    .formatted(dataSource().getId()));
+        }
+
+        final String whereSQL = pkFieldData.stream()
+                .map(fd -> fd.sql())
+                .collect(Collectors.joining("\n\t\t AND "));
+
+        this.removeSQL = """
+                        DELETE FROM %s
+                        WHERE %s
+                    """.formatted(
+                dataSource().getTableName(),
+                whereSQL
+        );
+    }
+
+    public String getRemoveSQL() {
+        return removeSQL;
+    }
+
+    public Map<String, Object> getPkValues() {
+        return convertFilterDataToMap(pkFieldData);
+    }
+
+    public List<JDBCHandler.IFilterData> getPkFieldData() {
+        return pkFieldData;
+    }
+}
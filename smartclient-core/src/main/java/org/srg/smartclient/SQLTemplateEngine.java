@@ -12,6 +12,7 @@ import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -20,15 +21,75 @@ import java.util.Map;
  * @see <ahref="https://www.smartclient.com/smartclient-release/isomorphic/system/reference/?id=type..DefaultQueryClause">DefaultQueryClause</a>
  */
 public class SQLTemplateEngine {
+    private static final int MAX_CACHED_TEMPLATES = 512;
+
+    /**
+     * Configuration is thread-safe as long as it is not modified after the initialization.
+     */
+    private static final Configuration configuration = new Configuration(Configuration.VERSION_2_3_30);
+
+    /**
+     * Parsed templates, keyed by the template text. Parsed templates are thread-safe and can be shared.
+     */
+    private static final Map<String, Template> templates = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Template> eldest) {
+            return size() > MAX_CACHED_TEMPLATES;
+        }
+    };
+
+    protected static boolean isTemplate(String sql) {
+        return sql != null
+                && (sql.contains("${") || sql.contains("<#"));
+    }
+
+    protected static Template getTemplate(String sql) throws IOException {
+        synchronized (templates) {
+            Template template = templates.get(sql);
+            if (template == null) {
+                template = new Template("t", new StringReader(sql), configuration);
+                templates.put(sql, template);
+            }
+            return template;
+        }
+    }
+
+    /**
+     * Parses and caches provided templates, to avoid parsing on the request handling path.
+     */
+    public static void precompile(String... sqls) throws IOException {
+        for (String sql : sqls) {
+            if (isTemplate(sql)) {
+                getTemplate(sql);
+            }
+        }
+    }
 
     public static String processSQL(Map<String,Object> context, String sql) throws IOException, TemplateException {
-        final Configuration cfg = new Configuration(Configuration.VERSION_2_3_30);
-        final Template template = new Template("t", new StringReader(sql), cfg);
+        if (!isTemplate(sql)) {
+            return sql;
+        }
+
+        final Template template = getTemplate(sql);
         final Writer out = new StringWriter();
         template.process(context, out);
         return out.toString();
     }
 
+    /**
+     * FreeMarker does not interpolate placeholders introduced by the interpolated values, therefore
+     * it is required to render such context values in place, before they will be used by the outer template.
+     *
+     * Keys are processed in the provided order, so a value may refer to the values resolved before.
+     */
+    public static void resolveNested(Map<String, Object> context, String... keys) throws IOException, TemplateException {
+        for (String key : keys) {
+            if (context.get(key) instanceof String v && isTemplate(v)) {
+                context.put(key, processSQL(context, v));
+            }
+        }
+    }
+
     private static Map<String, Object> populateAdvancedCriteriaMap(Map<String, Object> values, Criteria ac) {
         if (ac.getFieldName() != null && !ac.getFieldName().isBlank()) {
             if (ac.getCriteria() != null && !ac.getCriteria().isEmpty()) {
@@ -0,0 +1,229 @@
+package org.srg.smartclient;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.srg.smartclient.utils.Utils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Wraps a {@link JDBCHandler.JDBCPolicy} with the transaction scope bound to the current thread.
+ *
+ * Within {@link #withTransactionDo(Collection, Utils.CheckedFunction)} every {@link #withConnectionDo(String, Utils.CheckedFunction)}
+ * call for the enlisted database gets the same connection, handlers' commit/rollback/close calls are suppressed
+ * (a rollback marks the transaction as rollback only), and the transaction is committed or rolled back once,
+ * when the scope is completed. Out of the scope all the calls are passed to the wrapped policy as is.
+ * Autocommit of the enlisted connections is switched off for the scope and restored afterwards.
+ *
+ * Several databases are committed one by one, it is not a distributed (XA) transaction.
+ */
+public class TransactionalJDBCPolicy implements JDBCHandler.JDBCPolicy {
+    private static final Logger logger = LoggerFactory.getLogger(TransactionalJDBCPolicy.class);
+
+    public static class Transaction {
+        private final Map<String, Connection> connections = new LinkedHashMap<>();
+        private final Map<String, Connection> proxies = new HashMap<>();
+
+        /**
+         * Databases whose connections had autocommit on when they were borrowed
+         */
+        private final Set<String> autoCommitted = new HashSet<>();
+        private boolean rollbackOnly;
+
+        public void setRollbackOnly() {
+            this.rollbackOnly = true;
+        }
+
+        public boolean isRollbackOnly() {
+            return rollbackOnly;
+        }
+
+        private void bind(String database, Connection connection) throws SQLException {
+            if (connection.getAutoCommit()) {
+                connection.setAutoCommit(false);
+                autoCommitted.add(database);
+            }
+
+            connections.put(database, connection);
+            proxies.put(database, suppressTransactionControl(connection, this));
+        }
+
+        /**
+         * Restores autocommit once the transaction is committed or rolled back, before the connection is returned
+         */
+        private void unbind(String database) {
+            final Connection connection = connections.remove(database);
+            proxies.remove(database);
+
+            if (connection != null && autoCommitted.remove(database)) {
+                try {
+                    connection.setAutoCommit(true);
+                } catch (SQLException ex) {
+                    logger.warn("Autocommit of database '%s' can't be restored.".formatted(database), ex);
+                }
+            }
+        }
+
+        private void commit() throws SQLException {
+            final Iterator<Map.Entry<String, Connection>> it = connections.entrySet().iterator();
+            while (it.hasNext()) {
+                final Map.Entry<String, Connection> e = it.next();
+                try {
+                    e.getValue().commit();
+                } catch (SQLException ex) {
+                    while (it.hasNext()) {
+                        rollbackQuietly(it.next().getValue());
+                    }
+
+                    if (connections.size() > 1) {
+                        logger.warn("Commit of database '%s' failed, the databases enlisted before it have been committed already."
+                                .formatted(e.getKey()));
+                    }
+                    throw ex;
+                }
+            }
+        }
+
+        private void rollback() {
+            connections.values().forEach(Transaction::rollbackQuietly);
+        }
+
+        private static void rollbackQuietly(Connection connection) {
+            try {
+                connection.rollback();
+            } catch (SQLException ex) {
+                logger.warn("Transaction rollback failed", ex);
+            }
+        }
+    }
+
+    private final JDBCHandler.JDBCPolicy delegate;
+    private final ThreadLocal<Transaction> transaction = new ThreadLocal<>();
+
+    public TransactionalJDBCPolicy(JDBCHandler.JDBCPolicy delegate) {
+        this.delegate = delegate;
+    }
+
+    public JDBCHandler.JDBCPolicy getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * @return true if the database is enlisted in the transaction bound to the current thread
+     */
+    public boolean isEnlisted(String database) {
+        final Transaction tx = transaction.get();
+        return tx != null && tx.connections.containsKey(database);
+    }
+
+    @Override
+    public void withConnectionDo(String database, Utils.CheckedFunction<Connection, Void> callback) throws Exception {
+        final Transaction tx = transaction.get();
+        final Connection connection = tx == null ? null : tx.proxies.get(database);
+
+        if (connection == null) {
+            delegate.withConnectionDo(database, callback);
+        } else {
+            callback.apply(connection);
+        }
+    }
+
+    /**
+     * Reads of the enlisted database are performed by the transaction connection to see its own writes,
+     * the rest are passed to the wrapped policy and may be served by a replica.
+     */
+    @Override
+    public void withReadOnlyConnectionDo(String database, Utils.CheckedFunction<Connection, Void> callback) throws Exception {
+        final Transaction tx = transaction.get();
+        final Connection connection = tx == null ? null : tx.proxies.get(database);
+
+        if (connection == null) {
+            delegate.withReadOnlyConnectionDo(database, callback);
+        } else {
+            callback.apply(connection);
+        }
+    }
+
+    /**
+     * Borrows a single connection per provided database for the whole callback, then commits all of them,
+     * or rolls back if the callback fails or marks the transaction as rollback only.
+     *
+     * A nested call joins the already active transaction.
+     */
+    public void withTransactionDo(Collection<String> databases, Utils.CheckedFunction<Transaction, Void> callback) throws Exception {
+        final Transaction active = transaction.get();
+        if (active != null) {
+            callback.apply(active);
+            return;
+        }
+
+        final Transaction tx = new Transaction();
+        transaction.set(tx);
+        try {
+            doInTransaction(new ArrayList<>(databases).iterator(), tx, callback);
+        } finally {
+            transaction.remove();
+        }
+    }
+
+    private void doInTransaction(Iterator<String> databases, Transaction tx, Utils.CheckedFunction<Transaction, Void> callback) throws Exception {
+        if (databases.hasNext()) {
+            final String database = databases.next();
+            delegate.withConnectionDo(database, conn -> {
+                tx.bind(database, conn);
+                try {
+                    doInTransaction(databases, tx, callback);
+                } finally {
+                    tx.unbind(database);
+                }
+                return null;
+            });
+            return;
+        }
+
+        // -- all the connections are borrowed
+        try {
+            callback.apply(tx);
+        } catch (Throwable t) {
+            tx.rollback();
+            throw t;
+        }
+
+        if (tx.isRollbackOnly()) {
+            tx.rollback();
+        } else {
+            tx.commit();
+        }
+    }
+
+    private static Connection suppressTransactionControl(Connection connection, Transaction tx) {
+        return (Connection) Proxy.newProxyInstance(
+                TransactionalJDBCPolicy.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (args == null) {
+                        switch (method.getName()) {
+                            case "commit", "close":
+                                return null;
+
+                            case "rollback":
+                                tx.setRollbackOnly();
+                                return null;
+                        }
+                    } else if ("setAutoCommit".equals(method.getName())) {
+                        // the transaction is controlled by the policy only
+                        return null;
+                    }
+
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    }
+                });
+    }
+}
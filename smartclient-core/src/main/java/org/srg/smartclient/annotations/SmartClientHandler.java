@@ -9,4 +9,19 @@ public @interface SmartClientHandler {
     String value() default "";
     int loadOrder() default 0;
     String serverConstructor() default "";
+
+    /**
+     * See {@link org.srg.smartclient.isomorphic.DataSource#getMaxConcurrentRequests()}, not limited if not positive
+     */
+    int maxConcurrentRequests() default -1;
+
+    /**
+     * See {@link org.srg.smartclient.isomorphic.DataSource#getMaxQueuedRequests()}, not limited if negative
+     */
+    int maxQueuedRequests() default -1;
+
+    /**
+     * See {@link org.srg.smartclient.isomorphic.DataSource#getMaxQueueWaitMillis()}, default is used if negative
+     */
+    long maxQueueWaitMillis() default -1;
 }
@@ -8,6 +8,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * https://www.smartclient.com/smartclient-12.0/isomorphic/system/reference/?id=group..server_properties&ref=group:iscInstall
@@ -20,25 +21,105 @@ final public class Config {
         /**
          * https://www.smartclient.com/smartclient-12.0/isomorphic/system/reference/?id=group..sqlDataSource
          */
-//        public static class Pool {
-//            public enum WhenExhaustedAction {
-//                fail,
-//                block,
-//                grow
-//            }
-//
-//            private boolean enabled = true;
-//            private int maxActive = -1;
-//            private int maxIdle = -1;
-//            private int minIdle = -1;
-//            private WhenExhaustedAction whenExhaustedAction = WhenExhaustedAction.grow;
-//            private boolean testOnBorrow = true;
-//            private boolean testOnReturn = false;
-//            private boolean testWhileIdle = false;
-//            private int timeBetweenEvictionRunsMillis = -1;
-//            private int minEvictableIdleTimeMillis = -1;
-//            private int numTestsPerEvictionRun = -1;
-//        }
+        public static class Pool {
+            public enum WhenExhaustedAction {
+                fail,
+                block,
+                grow
+            }
+
+            private boolean enabled = true;
+            private int maxActive = -1;
+            private int maxIdle = -1;
+            private int minIdle = -1;
+            private WhenExhaustedAction whenExhaustedAction = WhenExhaustedAction.grow;
+            private long maxWait = 30_000;
+            private boolean testOnBorrow = true;
+            private boolean testOnReturn = false;
+            private boolean testWhileIdle = false;
+            private int validationTimeout = 5;
+            private int timeBetweenEvictionRunsMillis = -1;
+            private int minEvictableIdleTimeMillis = 30 * 60_000;
+            private int numTestsPerEvictionRun = 3;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            /**
+             * Max number of the connections (borrowed and idle), non-positive value means no limit
+             */
+            public int getMaxActive() {
+                return maxActive;
+            }
+
+            /**
+             * Max number of the idle connections, non-positive value means no limit
+             */
+            public int getMaxIdle() {
+                return maxIdle;
+            }
+
+            /**
+             * Number of the idle connections that are never evicted
+             */
+            public int getMinIdle() {
+                return minIdle;
+            }
+
+            public WhenExhaustedAction getWhenExhaustedAction() {
+                return whenExhaustedAction;
+            }
+
+            /**
+             * Max time in milliseconds to wait for a connection, if {@link WhenExhaustedAction#block} is in use
+             */
+            public long getMaxWait() {
+                return maxWait;
+            }
+
+            public boolean isTestOnBorrow() {
+                return testOnBorrow;
+            }
+
+            public boolean isTestOnReturn() {
+                return testOnReturn;
+            }
+
+            public boolean isTestWhileIdle() {
+                return testWhileIdle;
+            }
+
+            /**
+             * Timeout in seconds passed to {@link java.sql.Connection#isValid(int)}
+             */
+            public int getValidationTimeout() {
+                return validationTimeout;
+            }
+
+            /**
+             * Idle connections eviction is disabled if the value is non-positive
+             */
+            public int getTimeBetweenEvictionRunsMillis() {
+                return timeBetweenEvictionRunsMillis;
+            }
+
+            public int getMinEvictableIdleTimeMillis() {
+                return minEvictableIdleTimeMillis;
+            }
+
+            public int getNumTestsPerEvictionRun() {
+                return numTestsPerEvictionRun;
+            }
+        }
+
+        /**
+         * How a read replica is picked for a read only operation
+         */
+        public enum ReplicaBalancing {
+            roundRobin,
+            leastLoaded
+        }
 
         public static class Connection {
             public static class Database {
@@ -62,6 +143,9 @@ final public class Config {
             private Database database = new Database();
             private String driverClass;
             private Map<String, Object> driverProperties = new HashMap<>();
+            private Pool pool = new Pool();
+            private List<String> replicas = new ArrayList<>();
+            private ReplicaBalancing replicaBalancing = ReplicaBalancing.roundRobin;
 
             public String getName() {
                 return name;
@@ -78,6 +162,21 @@ final public class Config {
             public Map<String, Object> getDriverProperties() {
                 return Collections.unmodifiableMap(driverProperties);
             }
+
+            public Pool getPool() {
+                return pool;
+            }
+
+            /**
+             * Names of the connections that serve read only operations (FETCH) instead of this one
+             */
+            public List<String> getReplicas() {
+                return Collections.unmodifiableList(replicas);
+            }
+
+            public ReplicaBalancing getReplicaBalancing() {
+                return replicaBalancing;
+            }
         }
 
         private String defaultDatabase;
@@ -196,6 +295,24 @@ final public class Config {
             c.driverClass = driverClass;
             c.driverProperties = driverProps;
 
+            // -- parse replicas
+            if (v.get("replicas") instanceof String replicas) {
+                c.replicas = Arrays.stream(replicas.split(","))
+                        .map(String::trim)
+                        .filter(r -> !r.isEmpty())
+                        .collect(Collectors.toList());
+            }
+
+            if (v.get("replicaBalancing") instanceof String balancing) {
+                c.replicaBalancing = SQLConfig.ReplicaBalancing.valueOf(balancing.trim());
+            }
+
+            // -- parse pool section
+            final Object pool = v.get("pool");
+            if (pool instanceof Map) {
+                c.pool = Serde.createMapper().convertValue(pool, SQLConfig.Pool.class);
+            }
+
             // --
             sqlConfig.connections.put(c.getName(), c);
         }
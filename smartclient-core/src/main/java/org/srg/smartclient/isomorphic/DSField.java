@@ -193,6 +193,22 @@ public class DSField {
         TITLE
     }
 
+    /**
+     * How the includeSummaryFunction value is calculated, it is not a part of the SmartClient protocol.
+     */
+    public enum IncludeSummaryStrategy {
+        /**
+         * Correlated sub-select in the SELECT list, it is executed once per returned row.
+         */
+        SUBSELECT,
+
+        /**
+         * Summaries for the whole page are calculated by a single GROUP BY query restricted to the page keys.
+         * It is not applicable if the field is used in criteria or sort, sub-select is used in such case.
+         */
+        GROUPED
+    }
+
     private String name;
     private String title;
     private String titleField;
@@ -256,6 +272,11 @@ public class DSField {
      */
     private SummaryFunctionType includeSummaryFunction;
 
+    /**
+     * If not set, the strategy is chosen depending on the page size.
+     */
+    private IncludeSummaryStrategy includeSummaryStrategy;
+
     private String displayField;
     private String rootValue;
     private String dbName;
@@ -665,6 +686,14 @@ public class DSField {
         this.includeSummaryFunction = includeSummaryFunction;
     }
 
+    public IncludeSummaryStrategy getIncludeSummaryStrategy() {
+        return includeSummaryStrategy;
+    }
+
+    public void setIncludeSummaryStrategy(IncludeSummaryStrategy includeSummaryStrategy) {
+        this.includeSummaryStrategy = includeSummaryStrategy;
+    }
+
     public void setRelatedTableAlias(String relatedTableAlias) {
         this.relatedTableAlias = relatedTableAlias;
     }
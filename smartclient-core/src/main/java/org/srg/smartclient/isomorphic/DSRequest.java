@@ -80,6 +80,14 @@ public class DSRequest implements IDSRequest {
     private IDSRequestData data;
     private Map<String,Object>  oldValues;
 
+    /**
+     * https://www.smartclient.com/smartgwt/javadoc/com/smartgwt/client/data/DSRequest.html#getExportResults--
+     *
+     * When set, the fetched rows are exported rather than returned to a component, therefore the whole result
+     * is read by a forward-only cursor and the total rows count is not calculated.
+     */
+    private Boolean exportResults;
+
 
     public Boolean getUseStrictJSON() {
         return useStrictJSON;
@@ -176,6 +184,14 @@ public class DSRequest implements IDSRequest {
         this.oldValues = oldValues;
     }
 
+    public Boolean getExportResults() {
+        return exportResults;
+    }
+
+    public void setExportResults(Boolean exportResults) {
+        this.exportResults = exportResults;
+    }
+
     public String getOutputs() {
         return outputs;
     }
@@ -195,4 +211,11 @@ public class DSRequest implements IDSRequest {
     public static class MapData extends HashMap implements IDSRequestData {
 
     }
+
+    /**
+     * Multiple records sent within a single ADD, UPDATE or REMOVE request
+     */
+    public static class ListData extends ArrayList<Map<String, Object>> implements IDSRequestData {
+
+    }
 }
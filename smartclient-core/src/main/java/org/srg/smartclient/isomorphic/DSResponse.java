@@ -9,6 +9,7 @@ public class DSResponse {
     public static final int STATUS_SUCCESS = 0;
     private static final int STATUS_FAILURE = -1;
     private static final int STATUS_VALIDATION_ERROR = -4;
+    private static final int STATUS_TRANSACTION_FAILED = -10;
     private static final int STATUS_LOGIN_INCORRECT = -5;
     private static final int STATUS_MAX_LOGIN_ATTEMPTS_EXCEEDED = -6;
     private static final int STATUS_LOGIN_REQUIRED = -7;
@@ -88,6 +89,25 @@ public class DSResponse {
         return retVal;
     }
 
+    /**
+     * Response for the queued operation that has been rolled back (or has not been performed at all)
+     * due to a failure of another operation within the same transaction.
+     */
+    public static DSResponse transactionFailure(String message, Object... args) {
+        final DSResponse retVal = failure(message, args);
+        retVal.setStatus(DSResponse.STATUS_TRANSACTION_FAILED);
+        return retVal;
+    }
+
+    /**
+     * Response for the request that has not been performed, since the server was not able to start it in time.
+     */
+    public static DSResponse serverTimeout(String message, Object... args) {
+        final DSResponse retVal = failure(message, args);
+        retVal.setStatus(DSResponse.STATUS_SERVER_TIMEOUT);
+        return retVal;
+    }
+
     public static DSResponse successFetch(int startRow, int endRow, Iterable<DSField> fields, Iterable<Object[]> data) {
         return successFetch(startRow, endRow, -1, fields, data);
     }
@@ -102,6 +122,19 @@ public class DSResponse {
         return retVal;
     }
 
+    /**
+     * @param rows are read from the database while the response is being written
+     */
+    public static DSResponse successStreamedFetch(int startRow, int endRow, int totalRows, Iterable<DSField> fields, DSResponseDataContainer.RowStream rows) {
+        final DSResponse retVal = new DSResponse();
+        retVal.setStartRow(startRow);
+        retVal.setEndRow(endRow);
+        retVal.setTotalRows(totalRows);
+        retVal.data = DSResponseDataContainer.createStreamed(fields, rows);
+        retVal.setStatus(DSResponse.STATUS_SUCCESS);
+        return retVal;
+    }
+
     public static DSResponse success(DSResponseDataContainer dsResponseDataContainer){
         final DSResponse retVal = new DSResponse();
 //        retVal.setOperationType(DSRequest.OperationType.UPDATE);
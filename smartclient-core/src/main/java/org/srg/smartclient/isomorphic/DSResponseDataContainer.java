@@ -1,13 +1,17 @@
 package org.srg.smartclient.isomorphic;
 
+import java.util.function.Consumer;
+
 public final class DSResponseDataContainer {
     public enum ResponseType {
         RAW,
+        STREAMED,
         GENERAL_ERROR
     }
 
     private ResponseType responseType;
     private RawDataResponse rawDataResponse;
+    private StreamedDataResponse streamedDataResponse;
     private String generalFailure;
 
     public ResponseType getResponseType() {
@@ -21,6 +25,13 @@ public final class DSResponseDataContainer {
         return rawDataResponse;
     }
 
+    public StreamedDataResponse getStreamedDataResponse() {
+        if (getResponseType() != ResponseType.STREAMED) {
+            throw new IllegalStateException();
+        }
+        return streamedDataResponse;
+    }
+
     public String getGeneralFailureMessage() {
         if (getResponseType() != ResponseType.GENERAL_ERROR) {
             throw new IllegalStateException();
@@ -47,6 +58,35 @@ public final class DSResponseDataContainer {
         }
     }
 
+    /**
+     * Rows that are not materialized, they are read from the database and passed to the consumer
+     * while the response is being written.
+     */
+    public interface RowStream {
+        /**
+         * Each call reads the rows from the database again.
+         */
+        void forEach(Consumer<? super Object[]> action);
+    }
+
+    public static class StreamedDataResponse {
+        private final Iterable<DSField> fields;
+        private final RowStream rows;
+
+        public StreamedDataResponse(Iterable<DSField> fields, RowStream rows) {
+            this.fields = fields;
+            this.rows = rows;
+        }
+
+        public Iterable<DSField> getFields() {
+            return fields;
+        }
+
+        public RowStream getRows() {
+            return rows;
+        }
+    }
+
     public static DSResponseDataContainer createRaw(Iterable<DSField> fields, Iterable<Object[]> data) {
         final DSResponseDataContainer retVal = new DSResponseDataContainer();
         retVal.responseType = ResponseType.RAW;
@@ -55,6 +95,14 @@ public final class DSResponseDataContainer {
         return retVal;
     }
 
+    public static DSResponseDataContainer createStreamed(Iterable<DSField> fields, RowStream rows) {
+        final DSResponseDataContainer retVal = new DSResponseDataContainer();
+        retVal.responseType = ResponseType.STREAMED;
+
+        retVal.streamedDataResponse = new StreamedDataResponse(fields, rows);
+        return retVal;
+    }
+
     public static DSResponseDataContainer createFailure(String message, Object...args) {
         final DSResponseDataContainer retVal = new DSResponseDataContainer();
         retVal.responseType = ResponseType.GENERAL_ERROR;
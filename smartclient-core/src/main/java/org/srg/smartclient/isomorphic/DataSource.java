@@ -17,6 +17,24 @@ public class DataSource {
         JSON
     }
 
+    /**
+     * Defines how the total number of rows is calculated for the paged fetches.
+     *
+     * This is not a SmartClient property, it is specific to this implementation.
+     */
+    public enum TotalRowsMode {
+        /**
+         * The total is calculated by a separate {@code SELECT count(*)} query, executed before the page query.
+         */
+        COUNT_QUERY,
+
+        /**
+         * The total is calculated by the page query itself via {@code COUNT(*) OVER()}.
+         * Falls back to {@link #COUNT_QUERY} if window functions are not supported by the database.
+         */
+        WINDOW_FUNCTION
+    }
+
     private String id;
     private DSServerType serverType;
     private String dbName;
@@ -52,6 +70,95 @@ public class DataSource {
 
     private String serverConstructor;
 
+    private TotalRowsMode totalRowsMode;
+
+    /**
+     * https://www.smartclient.com/smartclient-release/isomorphic/system/reference/?id=attr..DataSource.progressiveLoading
+     *
+     * If true, the exact row count is not calculated: the server fetches one extra row to find out
+     * whether more rows exist, and reports an estimated totalRows.
+     */
+    private Boolean progressiveLoading;
+
+    /**
+     * If true, the next sequential page requested by the same component is fetched by seeking from the last
+     * sort key of the previous page instead of OFFSET. Sort order is always completed by the primary key.
+     *
+     * This is not a SmartClient property, it is specific to this implementation.
+     */
+    private Boolean keysetPagination;
+
+    /**
+     * If true, fetched rows are not collected in memory but written to the response directly from the
+     * ResultSet, such responses are of {@link DSResponseDataContainer.ResponseType#STREAMED} type.
+     * It is not applied to requests that fetch sub-entities, nor if {@link #maxConcurrentRequests} is set.
+     *
+     * The total is calculated by a separate COUNT query before the rows are read, therefore it is an estimate.
+     * Fetches are not streamed if {@link #progressiveLoading}, {@link #keysetPagination} or a {@link #totalRowsMode}
+     * other than {@link TotalRowsMode#COUNT_QUERY} is in use, exports are streamed regardless of them.
+     *
+     * This is not a SmartClient property, it is specific to this implementation.
+     */
+    private Boolean streamResults;
+
+    /**
+     * Max number of seconds the SQL statement is allowed to run, see {@link java.sql.Statement#setQueryTimeout(int)}.
+     * Not limited if not set.
+     *
+     * This is not a SmartClient property, it is specific to this implementation.
+     */
+    private Integer queryTimeout;
+
+    /**
+     * Max number of requests to this data source that are performed concurrently by the dispatcher,
+     * the rest wait in the queue. Not limited if not set.
+     *
+     * The limit is released once the response is built, therefore results of such data source are never streamed,
+     * including exports, see {@link #streamResults}.
+     *
+     * This is not a SmartClient property, it is specific to this implementation.
+     */
+    private Integer maxConcurrentRequests;
+
+    /**
+     * Max number of requests waiting for the {@link #maxConcurrentRequests} limit, the excess ones are rejected
+     * immediately. Not limited if not set.
+     *
+     * This is not a SmartClient property, it is specific to this implementation.
+     */
+    private Integer maxQueuedRequests;
+
+    /**
+     * Max time the queued request waits before it is rejected with the server timeout status, 30 seconds if not set.
+     *
+     * This is not a SmartClient property, it is specific to this implementation.
+     */
+    private Long maxQueueWaitMillis;
+
+    /**
+     * If true, fetch responses are cached by {@code JDBCHandler}, keyed by the criteria, sort and page of the request.
+     * Cached responses are invalidated by any ADD, UPDATE or REMOVE performed through the dispatcher on this data source,
+     * or on a data source it refers to by includeFrom or foreignKey.
+     *
+     * This is not a SmartClient property, it is specific to this implementation.
+     */
+    private Boolean cacheResults;
+
+    /**
+     * How long a cached fetch response is served, 60 seconds if not set, see {@link #cacheResults}.
+     *
+     * This is not a SmartClient property, it is specific to this implementation.
+     */
+    private Long cacheTtlMillis;
+
+    /**
+     * Max number of the cached fetch responses, the least recently used ones are evicted first,
+     * 256 if not set, see {@link #cacheResults}.
+     *
+     * This is not a SmartClient property, it is specific to this implementation.
+     */
+    private Integer cacheMaxEntries;
+
     public void setId(String id) {
         this.id = id;
     }
@@ -171,6 +278,94 @@ public class DataSource {
         this.serverConstructor = serverConstructor;
     }
 
+    public TotalRowsMode getTotalRowsMode() {
+        return totalRowsMode;
+    }
+
+    public void setTotalRowsMode(TotalRowsMode totalRowsMode) {
+        this.totalRowsMode = totalRowsMode;
+    }
+
+    public Boolean isProgressiveLoading() {
+        return progressiveLoading;
+    }
+
+    public void setProgressiveLoading(Boolean progressiveLoading) {
+        this.progressiveLoading = progressiveLoading;
+    }
+
+    public Boolean isKeysetPagination() {
+        return keysetPagination;
+    }
+
+    public void setKeysetPagination(Boolean keysetPagination) {
+        this.keysetPagination = keysetPagination;
+    }
+
+    public Boolean isStreamResults() {
+        return streamResults;
+    }
+
+    public void setStreamResults(Boolean streamResults) {
+        this.streamResults = streamResults;
+    }
+
+    public Integer getQueryTimeout() {
+        return queryTimeout;
+    }
+
+    public void setQueryTimeout(Integer queryTimeout) {
+        this.queryTimeout = queryTimeout;
+    }
+
+    public Boolean isCacheResults() {
+        return cacheResults;
+    }
+
+    public void setCacheResults(Boolean cacheResults) {
+        this.cacheResults = cacheResults;
+    }
+
+    public Long getCacheTtlMillis() {
+        return cacheTtlMillis;
+    }
+
+    public void setCacheTtlMillis(Long cacheTtlMillis) {
+        this.cacheTtlMillis = cacheTtlMillis;
+    }
+
+    public Integer getCacheMaxEntries() {
+        return cacheMaxEntries;
+    }
+
+    public void setCacheMaxEntries(Integer cacheMaxEntries) {
+        this.cacheMaxEntries = cacheMaxEntries;
+    }
+
+    public Integer getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public void setMaxConcurrentRequests(Integer maxConcurrentRequests) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
+    public Integer getMaxQueuedRequests() {
+        return maxQueuedRequests;
+    }
+
+    public void setMaxQueuedRequests(Integer maxQueuedRequests) {
+        this.maxQueuedRequests = maxQueuedRequests;
+    }
+
+    public Long getMaxQueueWaitMillis() {
+        return maxQueueWaitMillis;
+    }
+
+    public void setMaxQueueWaitMillis(Long maxQueueWaitMillis) {
+        this.maxQueueWaitMillis = maxQueueWaitMillis;
+    }
+
     protected Map<String, DSField> getFieldMap() {
         if (fieldMap == null) {
             final Map<String, DSField> m = new LinkedHashMap<>();
@@ -64,6 +64,38 @@ public class OperationBinding {
      */
     private String customSQL = "";
 
+    /**
+     * Overrides {@link DataSource#getTotalRowsMode()} for this operation, it is not a SmartClient property.
+     */
+    private DataSource.TotalRowsMode totalRowsMode;
+
+    /**
+     * Overrides {@link DataSource#isProgressiveLoading()} for this operation.
+     *
+     * See the documentation for <a href="https://www.smartclient.com/smartclient-release/isomorphic/system/reference/?id=attr..OperationBinding.progressiveLoading">progressiveLoading</a>
+     */
+    private Boolean progressiveLoading;
+
+    /**
+     * Overrides {@link DataSource#isKeysetPagination()} for this operation, it is not a SmartClient property.
+     */
+    private Boolean keysetPagination;
+
+    /**
+     * Overrides {@link DataSource#isStreamResults()} for this operation, it is not a SmartClient property.
+     */
+    private Boolean streamResults;
+
+    /**
+     * Overrides {@link DataSource#getQueryTimeout()} for this operation, it is not a SmartClient property.
+     */
+    private Integer queryTimeout;
+
+    /**
+     * Overrides {@link DataSource#isCacheResults()} for this operation, it is not a SmartClient property.
+     */
+    private Boolean cacheResults;
+
     public DSRequest.OperationType getOperationType() {
         return operationType;
     }
@@ -119,4 +151,52 @@ public class OperationBinding {
     public void setCustomSQL(String customSQL) {
         this.customSQL = customSQL;
     }
+
+    public DataSource.TotalRowsMode getTotalRowsMode() {
+        return totalRowsMode;
+    }
+
+    public void setTotalRowsMode(DataSource.TotalRowsMode totalRowsMode) {
+        this.totalRowsMode = totalRowsMode;
+    }
+
+    public Boolean isProgressiveLoading() {
+        return progressiveLoading;
+    }
+
+    public void setProgressiveLoading(Boolean progressiveLoading) {
+        this.progressiveLoading = progressiveLoading;
+    }
+
+    public Boolean isKeysetPagination() {
+        return keysetPagination;
+    }
+
+    public void setKeysetPagination(Boolean keysetPagination) {
+        this.keysetPagination = keysetPagination;
+    }
+
+    public Boolean isStreamResults() {
+        return streamResults;
+    }
+
+    public void setStreamResults(Boolean streamResults) {
+        this.streamResults = streamResults;
+    }
+
+    public Integer getQueryTimeout() {
+        return queryTimeout;
+    }
+
+    public void setQueryTimeout(Integer queryTimeout) {
+        this.queryTimeout = queryTimeout;
+    }
+
+    public Boolean isCacheResults() {
+        return cacheResults;
+    }
+
+    public void setCacheResults(Boolean cacheResults) {
+        this.cacheResults = cacheResults;
+    }
 }
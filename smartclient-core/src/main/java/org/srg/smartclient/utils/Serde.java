@@ -3,6 +3,9 @@ package org.srg.smartclient.utils;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.*;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.util.JsonParserSequence;
 import com.fasterxml.jackson.core.json.JsonReadFeature;
 import com.fasterxml.jackson.databind.*;
 import com.fasterxml.jackson.databind.deser.BeanDeserializerFactory;
@@ -13,6 +16,7 @@ import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.databind.node.TextNode;
 import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import org.srg.smartclient.isomorphic.*;
 import org.srg.smartclient.isomorphic.criteria.AdvancedCriteria;
 
@@ -21,84 +25,200 @@ import javax.persistence.JoinTable;
 import javax.persistence.metamodel.Attribute;
 import javax.persistence.metamodel.IdentifiableType;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.io.Writer;
 import java.lang.annotation.IncompleteAnnotationException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
 public class Serde {
 
-    public static <T extends IDSRequest> T deserializeRequest(String data) throws IOException {
-        final ObjectMapper mapper = createMapper();
+    /*
+     * The mapper is configured once and never changed afterwards, therefore it is thread safe,
+     * readers and writers are immutable and share its serializer and deserializer caches.
+     */
+    private static final ObjectMapper mapper = createMapper();
+    private static final ObjectReader requestReader = mapper.readerFor(DSRequest.class);
+    private static final ObjectReader transactionReader = mapper.readerFor(DSTransaction.class);
+    private static final ObjectWriter objectWriter = mapper.writer();
+    // several responses are written to the same writer, that is owned by the caller
+    private static final ObjectWriter responseWriter = mapper
+            .writerWithDefaultPrettyPrinter()
+            .withRootName("response")
+            .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    // equal values produce the same text regardless of the map entries order
+    private static final ObjectWriter canonicalWriter = mapper.writer()
+            .with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+
+    /**
+     * Serializes the value in a compact form with the map entries sorted by key,
+     * the result is suitable as a key for the values compared by content.
+     */
+    public static String serializeCanonically(Object value) throws JsonProcessingException {
+        return canonicalWriter.writeValueAsString(value);
+    }
 
+    public static <T extends IDSRequest> T deserializeRequest(String data) throws IOException {
         try (JsonParser p = mapper.createParser(data)) {
-            if (p.nextToken() == JsonToken.START_OBJECT
-                && "transaction".equals(p.nextFieldName())
-                    && p.nextToken() == JsonToken.START_OBJECT
-            ) {
-                return (T)mapper.readValue(p, DSTransaction.class);
-            } else {
-                return (T)mapper.readValue(data, DSRequest.class);
+            return readRequest(p);
+        }
+    }
+
+    /**
+     * Reads a request or a transaction in a single pass: the first field name tells what it is,
+     * then the rest of the object is bound by the corresponding reader from the current position.
+     */
+    private static <T extends IDSRequest> T readRequest(JsonParser p) throws IOException {
+        if (p.nextToken() == JsonToken.START_OBJECT
+                && p.nextToken() == JsonToken.FIELD_NAME
+                && "transaction".equals(p.currentName())) {
+
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(p, "Field 'transaction' must be an object.");
+            }
+
+            return transactionReader.readValue(p);
+        }
+
+        return requestReader.readValue(p);
+    }
+
+    /**
+     * Decodes a request from the chunks of bytes as soon as they arrive, by the Jackson non-blocking parser,
+     * so that the whole body is never collected as a String. Tokens are kept in a compact {@link TokenBuffer},
+     * and are bound to the request once the input is completed.
+     *
+     * Not thread safe, chunks must be fed sequentially.
+     */
+    public static class RequestDecoder {
+        private final JsonParser parser;
+        private final ByteArrayFeeder feeder;
+        private final TokenBuffer tokens;
+        private byte[] chunk = new byte[0];
+
+        public RequestDecoder() throws IOException {
+            this.parser = mapper.getFactory().createNonBlockingByteArrayParser();
+            this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+            this.tokens = new TokenBuffer(parser);
+        }
+
+        public RequestDecoder feed(ByteBuffer buffer) throws IOException {
+            final int length = buffer.remaining();
+
+            // the parser consumes the whole chunk before the next one is fed, therefore the array is reused
+            if (chunk.length < length) {
+                chunk = new byte[length];
+            }
+            buffer.get(chunk, 0, length);
+
+            feeder.feedInput(chunk, 0, length);
+            drain();
+            return this;
+        }
+
+        public <T extends IDSRequest> T decode() throws IOException {
+            feeder.endOfInput();
+            drain();
+
+            try (JsonParser p = tokens.asParser(mapper)) {
+                return readRequest(p);
+            } finally {
+                parser.close();
+            }
+        }
+
+        private void drain() throws IOException {
+            JsonToken t;
+            while ((t = parser.nextToken()) != null && t != JsonToken.NOT_AVAILABLE) {
+                tokens.copyCurrentEvent(parser);
             }
         }
     }
 
     public static void serializeResponseAsCSV(Writer writer, char separator,  DSResponse response) throws IOException {
-        final DSResponseDataContainer.RawDataResponse rdr = response.getData().getRawDataResponse();
-        final ObjectMapper mapper = Serde.createMapper();
+        final Iterable<DSField> fields;
+        final DSResponseDataContainer.RowStream rows;
+        if (response.getData().getResponseType() == DSResponseDataContainer.ResponseType.STREAMED) {
+            fields = response.getData().getStreamedDataResponse().getFields();
+            rows = response.getData().getStreamedDataResponse().getRows();
+        } else {
+            final DSResponseDataContainer.RawDataResponse rdr = response.getData().getRawDataResponse();
+            fields = rdr.getFields();
+            rows = rdr.getData()::forEach;
+        }
 
         // -- write header
         boolean first = true;
-        for (DSField dsf: rdr.getFields()) {
+        for (DSField dsf: fields) {
             if (!first){
                 writer.append(separator);
             }
-            writer.append('"');
-            writer.write(dsf.getName());
-            writer.append('"');
+            writeQuoted(writer, dsf.getName());
             first = false;
         }
         writer.write("\n");
 
-        // -- write data
-        for (Object[] r :rdr.getData()){
-            first = true;
-            for (Object v: r) {
-                if (!first){
-                    writer.write(separator);
-                }
-                if (v != null) {
-                    if (v instanceof String) {
-                        writer.append('"');
-                        writer.write((String) v);
-                        writer.append('"');
-                    } else if (v instanceof DSResponseDataContainer.RawDataResponse subValue) {
-                        final String str = mapper.writeValueAsString(subValue);
-                        writer.write(str);
-                    } else {
-                        writer.write(v.toString());
+        // -- write data, it may be streamed directly from the DB
+        try {
+            rows.forEach(r -> {
+                try {
+                    boolean firstValue = true;
+                    for (Object v : r) {
+                        if (!firstValue) {
+                            writer.write(separator);
+                        }
+                        if (v != null) {
+                            if (v instanceof String str) {
+                                writeQuoted(writer, str);
+                            } else if (v instanceof DSResponseDataContainer.RawDataResponse subValue) {
+                                writer.write(objectWriter.writeValueAsString(subValue));
+                            } else {
+                                writer.write(v.toString());
+                            }
+                        } else {
+                            writer.write("");
+                        }
+
+                        firstValue = false;
                     }
-                } else {
-                    writer.write("");
+                    writer.write("\n");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
                 }
-
-                first = false;
-            }
-            writer.write("\n");
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
 
         writer.flush();
     }
 
+    /**
+     * Quotes are escaped by doubling, as per RFC 4180
+     */
+    private static void writeQuoted(Writer writer, String value) throws IOException {
+        writer.append('"');
+
+        int start = 0;
+        for (int i = value.indexOf('"'); i >= 0; i = value.indexOf('"', start)) {
+            writer.write(value, start, i + 1 - start);
+            writer.append('"');
+            start = i + 1;
+        }
+        writer.write(value, start, value.length() - start);
+
+        writer.append('"');
+    }
+
     public static void serializeResponse(Writer writer, Integer transactionNum, Collection<DSResponse> responses) throws IOException {
 
         final boolean isQueue = responses.size() >1;
 
-        final ObjectWriter objectWriter = createMapper()
-                .writerWithDefaultPrettyPrinter()
-                .withRootName("response");
-
         int queueStatus = 0;
         if (isQueue) {
             writer.append("[");
@@ -125,7 +245,7 @@ public class Serde {
                 r.setTransactionNum(transactionNum);
             }
 
-            objectWriter.writeValue(writer, r);
+            responseWriter.writeValue(writer, r);
         }
 
         if (isQueue) {
@@ -134,21 +254,62 @@ public class Serde {
     }
 
     public static String toJson(Object o) throws JsonProcessingException {
-        final ObjectMapper om = createMapper();
-
-        return om.writeValueAsString(o);
+        return objectWriter.writeValueAsString(o);
     }
 
+    /**
+     * Data is bound without building a tree: SmartClient sends AdvancedCriteria with "_constructor" or "operator"
+     * as the first field, such criteria are bound straight from the parser. Other objects are buffered as tokens
+     * until it is known whether there is an operator among the fields.
+     */
     private static class DSRequestDeserializer extends JsonDeserializer<IDSRequestData> {
         @Override
         public IDSRequestData deserialize(JsonParser p, DeserializationContext ctxt) throws IOException, JsonProcessingException {
-            final ObjectNode node = p.readValueAsTree();
+            if (p.isExpectedStartArrayToken()) {
+                return ctxt.readValue(p, DSRequest.ListData.class);
+            }
 
-            if (node.has("operator")) {
-                return  p.getCodec().treeToValue(node, AdvancedCriteria.class);
-            } else {
-                return p.getCodec().treeToValue(node, DSRequest.MapData.class);
+            if (!p.isExpectedStartObjectToken()) {
+                return ctxt.readValue(p, DSRequest.MapData.class);
+            }
+
+            JsonToken t = p.nextToken();
+            if (t == JsonToken.FIELD_NAME && "operator".equals(p.currentName())) {
+                return ctxt.readValue(p, AdvancedCriteria.class);
+            }
+
+            final TokenBuffer tb = new TokenBuffer(p, ctxt);
+            tb.writeStartObject();
+
+            if (t == JsonToken.FIELD_NAME && "_constructor".equals(p.currentName())) {
+                tb.writeFieldName(p.currentName());
+                p.nextToken();
+                tb.copyCurrentEvent(p);
+
+                if ("AdvancedCriteria".equals(p.getValueAsString())) {
+                    // the buffered head is followed by the rest of the object from the parser
+                    final JsonParser sp = JsonParserSequence.createFlattened(false, tb.asParser(p), p);
+                    sp.nextToken();
+                    return ctxt.readValue(sp, AdvancedCriteria.class);
+                }
+                t = p.nextToken();
             }
+
+            boolean isAdvancedCriteria = false;
+            for (; t == JsonToken.FIELD_NAME; t = p.nextToken()) {
+                isAdvancedCriteria |= "operator".equals(p.currentName());
+                tb.writeFieldName(p.currentName());
+                p.nextToken();
+                tb.copyCurrentStructure(p);
+            }
+            tb.writeEndObject();
+
+            final JsonParser bp = tb.asParser(p);
+            bp.nextToken();
+            if (isAdvancedCriteria) {
+                return ctxt.readValue(bp, AdvancedCriteria.class);
+            }
+            return ctxt.readValue(bp, DSRequest.MapData.class);
         }
     }
 
@@ -218,8 +379,16 @@ public class Serde {
             switch (rc.getResponseType()) {
                 case GENERAL_ERROR -> jg.writeString(rc.getGeneralFailureMessage());
                 case RAW -> {
-                    final DSResponseDataContainer.RawDataResponse rr = rc.getRawDataResponse();
-                    jg.writeObject(rr);
+                    // the same provider keeps the writer attributes, e.g. SERIALIZE_FIELDS_ONLY
+                    serializers.defaultSerializeValue(rc.getRawDataResponse(), jg);
+                }
+                case STREAMED -> {
+                    final DSResponseDataContainer.StreamedDataResponse sr = rc.getStreamedDataResponse();
+                    if (serializers.getAttribute(RawDataResponseSerializer.SERIALIZE_FIELDS_ONLY) != null) {
+                        RawDataResponseSerializer.writeFieldNames(sr.getFields(), jg);
+                    } else {
+                        RawDataResponseSerializer.writeRows(sr.getFields(), sr.getRows(), jg, serializers);
+                    }
                 }
             }
         }
@@ -229,9 +398,17 @@ public class Serde {
 
         public static String SERIALIZE_FIELDS_ONLY = "SERIALIZE_FIELDS_ONLY";
 
+        /**
+         * Field names are pre-quoted once, the set of names is bounded by the registered data sources
+         */
+        private static final Map<String, SerializableString> fieldNames = new ConcurrentHashMap<>();
+
         protected void serializeFieldsOnly(DSResponseDataContainer.RawDataResponse rr, JsonGenerator jg, SerializerProvider serializers) throws IOException {
+            writeFieldNames(rr.getFields(), jg);
+        }
 
-            final List<String> names = StreamSupport.stream(rr.getFields().spliterator(), false)
+        static void writeFieldNames(Iterable<DSField> fields, JsonGenerator jg) throws IOException {
+            final List<String> names = StreamSupport.stream(fields.spliterator(), false)
                     .map(DSField::getName)
                     .collect(Collectors.toList());
 
@@ -250,31 +427,49 @@ public class Serde {
                 return;
             }
 
-            jg.writeStartArray();
+            writeRows(rr.getFields(), rr.getData()::forEach, jg, serializers);
+        }
 
-            final LinkedHashMap<String, Object> data = new LinkedHashMap<>();
-            final LinkedList<DSField> fields = new LinkedList<>();
+        /**
+         * Rows may be streamed directly from the DB, therefore they are passed to the consumer instead of being iterated
+         */
+        static void writeRows(Iterable<DSField> dsFields, DSResponseDataContainer.RowStream rows, JsonGenerator jg, SerializerProvider serializers) throws IOException {
+            final List<DSField> fieldList = new ArrayList<>();
+            dsFields.forEach(fieldList::add);
+
+            final DSField[] fields = fieldList.toArray(DSField[]::new);
+            final SerializableString[] names = new SerializableString[fields.length];
+            for (int i = 0; i < fields.length; ++i) {
+                names[i] = fieldNames.computeIfAbsent(fields[i].getName(), SerializedString::new);
+            }
 
-            rr.getFields().forEach( dsf -> {
-                data.put(dsf.getName(), null);
-                fields.add(dsf);
-            });
+            jg.writeStartArray();
 
-            for (Object r[]: rr.getData()) {
-                int[] idx= {0};
-                data.replaceAll((k,v) -> {
-                    int i = idx[0];
-                    final DSField f = fields.get(i);
-                    final Object formattedValue = formatValue(f, r[i]);
-                    idx[0]++;
-                    return formattedValue;
+            try {
+                rows.forEach(r -> {
+                    try {
+                        jg.writeStartObject();
+                        for (int i = 0; i < fields.length; ++i) {
+                            jg.writeFieldName(names[i]);
+                            writeValue(fields[i], r[i], jg, serializers);
+                        }
+                        jg.writeEndObject();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
                 });
-                jg.writeObject(data);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
             }
             jg.writeEndArray();
         }
 
-        private static Object formatValue(DSField field, Object value) {
+        private static void writeValue(DSField field, Object value, JsonGenerator jg, SerializerProvider serializers) throws IOException {
+            if (value == null) {
+                jg.writeNull();
+                return;
+            }
+
             if (/*field.getIncludeFrom() != null && !field.getIncludeFrom().isBlank() &&*/ field.getType() ==  null) {
                 /*
                  * field type can be null for nested entities and should be treated as
@@ -282,7 +477,8 @@ public class Serde {
                  *
                  * This may happen in case when the only Ids should be fetched for a sub-entity.
                  */
-                return value;
+                serializers.defaultSerializeValue(value, jg);
+                return;
             }
 
             switch (field.getType()) {
@@ -298,46 +494,50 @@ public class Serde {
                      *      "value" : "{\"id\": 12, \"name\": \"Zmags Publicator\", \"zoho_id\": 401759000008069015, \"client_id\": 3, \"created_at\": null, \"manager_id\": 41, \"modified_at\": \"2020-07-28T19:43:46.384\"}"
                      * }
                      */
-                    if (value != null) {
-                      return value.toString();
-                    } else {
-                        return  null;
-                    }
-                    //jsonGenerator.writeString((String) value);
-                    //break;
+                    jg.writeString(value.toString());
+                    break;
 
                 case INTEGER:
-//                    jsonGenerator.writeNumber((Long)value);
-//                    break;
-
-                case DATETIME:
-
-                case INTENUM:
-
-                // TODO: write ENUM name instead of  writing ordinal
-                case ENUM:
-//                    jsonGenerator.writeString(value.toString());
-//                    jsonGenerator.writeObject(value);
                 case FLOAT:
-                case BOOLEAN:
-                    return value;
-
-                case DATE:
-                    if (value != null) {
-                        return "%tF".formatted(value);
+                    if (value instanceof Integer v) {
+                        jg.writeNumber(v);
+                    } else if (value instanceof Long v) {
+                        jg.writeNumber(v);
+                    } else if (value instanceof Double v) {
+                        jg.writeNumber(v);
+                    } else if (value instanceof BigDecimal v) {
+                        jg.writeNumber(v);
                     } else {
-                        return null;
+                        serializers.defaultSerializeValue(value, jg);
                     }
+                    break;
 
-                case TIME:
-                    if (value != null) {
-                        return "%tT".formatted(value);
+                case BOOLEAN:
+                    if (value instanceof Boolean v) {
+                        jg.writeBoolean(v);
                     } else {
-                        return null;
+                        serializers.defaultSerializeValue(value, jg);
                     }
+                    break;
+
+                case DATE:
+                    // java.sql.Date and LocalDate are formatted as yyyy-mm-dd already
+                    jg.writeString(value instanceof java.sql.Date || value instanceof LocalDate ?
+                            value.toString() : "%tF".formatted(value));
+                    break;
+
+                case TIME:
+                    jg.writeString(value instanceof java.sql.Time ?
+                            value.toString() : "%tT".formatted(value));
+                    break;
 
+                // TODO: write ENUM name instead of  writing ordinal
+                case DATETIME:
+                case INTENUM:
+                case ENUM:
                 case ENTITY:
-                    return value;
+                    serializers.defaultSerializeValue(value, jg);
+                    break;
 
                 default:
                     throw new IllegalStateException("Unsupported DSField type '%s'.".formatted(field.getType()));
@@ -573,6 +773,9 @@ public class Serde {
     }
 
 
+    /**
+     * Creates a new mapper that can be re-configured by the caller, Serde methods use a shared one.
+     */
     public static ObjectMapper createMapper() {
         final ObjectMapper mapper = new ObjectMapper();
         final SimpleModule module = new SimpleModule("DSResponse-Serialization", Version.unknownVersion());
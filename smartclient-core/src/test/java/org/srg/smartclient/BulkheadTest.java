@@ -0,0 +1,61 @@
+package org.srg.smartclient;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class BulkheadTest {
+
+    @Test
+    public void requestIsRejectedWhenQueueWaitIsExceeded() {
+        final Bulkhead bulkhead = new Bulkhead("TestDS", 1, -1, 50);
+
+        Assertions.assertTrue(bulkhead.tryEnter());
+        Assertions.assertFalse(bulkhead.tryEnter());
+
+        Bulkhead.Metrics m = bulkhead.getMetrics();
+        Assertions.assertEquals(1, m.inFlight());
+        Assertions.assertEquals(0, m.queued());
+        Assertions.assertEquals(1, m.rejected());
+
+        bulkhead.exit();
+        Assertions.assertTrue(bulkhead.tryEnter());
+        bulkhead.exit();
+
+        m = bulkhead.getMetrics();
+        Assertions.assertEquals(0, m.inFlight());
+        Assertions.assertEquals(2, m.admitted());
+    }
+
+    @Test
+    public void requestIsRejectedImmediatelyWhenQueueIsFull() throws Exception {
+        final Bulkhead bulkhead = new Bulkhead("TestDS", 1, 1, TimeUnit.SECONDS.toMillis(30));
+        Assertions.assertTrue(bulkhead.tryEnter());
+
+        final CountDownLatch admitted = new CountDownLatch(1);
+        final Thread waiter = new Thread(() -> {
+            if (bulkhead.tryEnter()) {
+                admitted.countDown();
+                bulkhead.exit();
+            }
+        });
+        waiter.start();
+
+        while (bulkhead.getMetrics().queued() == 0) {
+            Thread.sleep(1);
+        }
+
+        final long startedAt = System.nanoTime();
+        Assertions.assertFalse(bulkhead.tryEnter());
+        Assertions.assertTrue(System.nanoTime() - startedAt < TimeUnit.SECONDS.toNanos(10));
+
+        bulkhead.exit();
+        Assertions.assertTrue(admitted.await(10, TimeUnit.SECONDS));
+        waiter.join();
+
+        Assertions.assertEquals(0, bulkhead.getMetrics().inFlight());
+        Assertions.assertEquals(1, bulkhead.getMetrics().rejected());
+    }
+}
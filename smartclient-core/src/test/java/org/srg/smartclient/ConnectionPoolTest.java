@@ -0,0 +1,92 @@
+package org.srg.smartclient;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.srg.smartclient.isomorphic.Config;
+import org.srg.smartclient.utils.Serde;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.util.Map;
+
+public class ConnectionPoolTest {
+    private final JdbcDataSource jdbcDataSource = new JdbcDataSource();
+    private ConnectionPool pool;
+
+    @BeforeEach
+    public void setupDataSource() {
+        jdbcDataSource.setURL("jdbc:h2:mem:pool;DB_CLOSE_DELAY=-1");
+        jdbcDataSource.setUser("sa");
+        jdbcDataSource.setPassword("sa");
+    }
+
+    @AfterEach
+    public void closePool() {
+        if (pool != null) {
+            pool.close();
+        }
+        pool = null;
+    }
+
+    private ConnectionPool withPool(Map<String, Object> config) {
+        pool = new ConnectionPool("pool", jdbcDataSource,
+                Serde.createMapper().convertValue(config, Config.SQLConfig.Pool.class));
+        return pool;
+    }
+
+    @Test
+    public void releasedConnectionIsReused() throws Exception {
+        withPool(Map.of("maxActive", 2, "whenExhaustedAction", "block"));
+
+        final Connection c1 = pool.borrow();
+        Assertions.assertEquals(1, pool.getMetrics().active());
+        pool.release(c1);
+
+        final Connection c2 = pool.borrow();
+        Assertions.assertSame(c1, c2);
+        pool.release(c2);
+
+        final ConnectionPool.Metrics metrics = pool.getMetrics();
+        Assertions.assertEquals(0, metrics.active());
+        Assertions.assertEquals(1, metrics.idle());
+        Assertions.assertEquals(2, metrics.borrowed());
+        Assertions.assertEquals(1, metrics.created());
+    }
+
+    @Test
+    public void borrowWaitIsBounded() throws Exception {
+        withPool(Map.of("maxActive", 1, "whenExhaustedAction", "block", "maxWait", 50));
+
+        final Connection c = pool.borrow();
+        Assertions.assertThrows(SQLTransientConnectionException.class, pool::borrow);
+        Assertions.assertTrue(pool.getMetrics().waitTimeNanos() > 0);
+
+        pool.release(c);
+        pool.release(pool.borrow());
+    }
+
+    @Test
+    public void borrowFails_ifPoolIsExhausted() throws Exception {
+        withPool(Map.of("maxActive", 1, "whenExhaustedAction", "fail"));
+
+        final Connection c = pool.borrow();
+        Assertions.assertThrows(SQLTransientConnectionException.class, pool::borrow);
+        pool.release(c);
+    }
+
+    @Test
+    public void excessIdleConnectionsAreClosed() throws Exception {
+        withPool(Map.of("maxIdle", 1));
+
+        final Connection c1 = pool.borrow();
+        final Connection c2 = pool.borrow();
+        pool.release(c1);
+        pool.release(c2);
+
+        Assertions.assertEquals(1, pool.getMetrics().idle());
+        Assertions.assertTrue(c2.isClosed());
+    }
+}
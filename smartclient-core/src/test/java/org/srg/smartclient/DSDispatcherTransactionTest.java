@@ -0,0 +1,249 @@
+package org.srg.smartclient;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.srg.smartclient.isomorphic.DSRequest;
+import org.srg.smartclient.isomorphic.DSResponse;
+import org.srg.smartclient.isomorphic.DSResponseDataContainer;
+import org.srg.smartclient.isomorphic.DataSource;
+import org.srg.smartclient.isomorphic.IDSRequest;
+import org.srg.smartclient.utils.Serde;
+import org.srg.smartclient.utils.Utils;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DSDispatcherTransactionTest extends AbstractJDBCHandlerTest<JDBCHandler> {
+    private final AtomicInteger checkouts = new AtomicInteger();
+    private final AtomicInteger readOnlyCheckouts = new AtomicInteger();
+    private final Set<String> readOnlyThreads = ConcurrentHashMap.newKeySet();
+    private DSDispatcher dispatcher;
+
+    @Override
+    protected Class<JDBCHandler> getHandlerClass() {
+        return JDBCHandler.class;
+    }
+
+    @BeforeEach
+    public void setupDispatcher() {
+        final JDBCHandler.JDBCPolicy policy = getJDJdbcPolicy();
+        dispatcher = new DSDispatcher(new JDBCHandler.JDBCPolicy() {
+            @Override
+            public void withConnectionDo(String database, Utils.CheckedFunction<Connection, Void> callback) throws Exception {
+                checkouts.incrementAndGet();
+                policy.withConnectionDo(database, callback);
+            }
+
+            @Override
+            public void withReadOnlyConnectionDo(String database, Utils.CheckedFunction<Connection, Void> callback) throws Exception {
+                readOnlyCheckouts.incrementAndGet();
+                readOnlyThreads.add(Thread.currentThread().getName());
+                policy.withConnectionDo(database, callback);
+            }
+        });
+
+        final DataSource ds = JsonTestSupport.fromJSON(DataSource.class, Handler.Employee);
+        dispatcher.registerHandler(new JDBCHandler(dispatcher.getJdbcPolicy(), dispatcher, ds));
+    }
+
+    @Test
+    public void queueIsPerformedOnSingleConnection() throws Exception {
+        final IDSRequest request = Serde.deserializeRequest("""
+                {
+                    "transaction": {
+                        "transactionNum": 1,
+                        "operations": [
+                            {"dataSource": "EmployeeDS", "operationType": "add", "data": {"name": "The first new Record"}},
+                            {"dataSource": "EmployeeDS", "operationType": "add", "data": {"name": "The second new Record"}},
+                            {"dataSource": "EmployeeDS", "operationType": "update", "data": {"id": 1, "name": "Renamed"}, "oldValues": {"id": 1, "name": "admin"}}
+                        ]
+                    }
+                }""");
+
+        final List<DSResponse> responses = new ArrayList<>(dispatcher.dispatch(request));
+        Assertions.assertEquals(1, checkouts.get());
+
+        JsonTestSupport.assertJsonEquals("""
+                [
+                    {status: 0, data: [{id: 7, name: 'The first new Record'}]},
+                    {status: 0, data: [{id: 8, name: 'The second new Record'}]},
+                    {status: 0, data: [{id: 1, name: 'Renamed'}]}
+                ]""", responses);
+
+        Assertions.assertEquals(1, fetchEmployee(1, "Renamed").getTotalRows());
+        Assertions.assertEquals(1, fetchEmployee(8, "The second new Record").getTotalRows());
+    }
+
+    @Test
+    public void failedQueueIsRolledBack() throws Exception {
+        final IDSRequest request = Serde.deserializeRequest("""
+                {
+                    "transaction": {
+                        "transactionNum": 2,
+                        "operations": [
+                            {"dataSource": "EmployeeDS", "operationType": "add", "data": {"name": "The first new Record"}},
+                            {"dataSource": "EmployeeDS", "operationType": "update", "data": {"id": 100, "name": "Missing"}, "oldValues": {"id": 100, "name": "Missing"}},
+                            {"dataSource": "EmployeeDS", "operationType": "remove", "data": {"id": 6}}
+                        ]
+                    }
+                }""");
+
+        final List<DSResponse> responses = new ArrayList<>(dispatcher.dispatch(request));
+
+        Assertions.assertEquals(-10, responses.get(0).getStatus());
+        Assertions.assertEquals(-1, responses.get(1).getStatus());
+        Assertions.assertEquals(-10, responses.get(2).getStatus());
+
+        Assertions.assertEquals(0, fetchEmployee(7, "The first new Record").getTotalRows());
+    }
+
+    @Test
+    public void onlyFetchOutOfWriteTransactionUsesReadOnlyConnection() throws Exception {
+        final IDSRequest fetch = Serde.deserializeRequest("""
+                {"dataSource": "EmployeeDS", "operationType": "fetch", "textMatchStyle": "exact", "data": {"id": 1}}""");
+
+        dispatcher.dispatch(fetch);
+        Assertions.assertEquals(1, readOnlyCheckouts.get());
+        Assertions.assertEquals(0, checkouts.get());
+
+        final IDSRequest queue = Serde.deserializeRequest("""
+                {
+                    "transaction": {
+                        "transactionNum": 3,
+                        "operations": [
+                            {"dataSource": "EmployeeDS", "operationType": "add", "data": {"name": "The first new Record"}},
+                            {"dataSource": "EmployeeDS", "operationType": "fetch", "textMatchStyle": "exact", "data": {"id": 7}}
+                        ]
+                    }
+                }""");
+
+        final List<DSResponse> responses = new ArrayList<>(dispatcher.dispatch(queue));
+        Assertions.assertEquals(1, readOnlyCheckouts.get());
+        Assertions.assertEquals(1, checkouts.get());
+        Assertions.assertEquals(1, responses.get(1).getTotalRows());
+    }
+
+    @Test
+    public void independentFetchesArePerformedConcurrently() throws Exception {
+        dispatcher.setQueueParallelism(4);
+
+        final IDSRequest queue = Serde.deserializeRequest("""
+                {
+                    "transaction": {
+                        "transactionNum": 4,
+                        "operations": [
+                            {"dataSource": "EmployeeDS", "operationType": "fetch", "operationId": "f1", "textMatchStyle": "exact", "data": {"id": 1}},
+                            {"dataSource": "EmployeeDS", "operationType": "fetch", "operationId": "f2", "textMatchStyle": "exact", "data": {"id": 2}},
+                            {"dataSource": "EmployeeDS", "operationType": "fetch", "operationId": "f3", "textMatchStyle": "exact", "data": {"id": 3}}
+                        ]
+                    }
+                }""");
+
+        final List<DSResponse> responses = new ArrayList<>(dispatcher.dispatch(queue));
+
+        Assertions.assertEquals(3, readOnlyCheckouts.get());
+        Assertions.assertTrue(readOnlyThreads.size() > 1);
+
+        for (int i = 0; i < 3; ++i) {
+            Assertions.assertEquals("f%d".formatted(i + 1), responses.get(i).getOperationId());
+            final Object[] row = responses.get(i).getData().getRawDataResponse().getData().iterator().next();
+            Assertions.assertEquals(i + 1, row[0]);
+        }
+    }
+
+    @Test
+    public void statementsOfCancelledRequestAreNotExecuted() throws Exception {
+        final IDSRequest fetch = Serde.deserializeRequest("""
+                {"dataSource": "EmployeeDS", "operationType": "fetch", "textMatchStyle": "exact", "data": {"id": 1}}""");
+
+        final QueryCancellation cancellation = new QueryCancellation();
+        cancellation.cancel();
+
+        final List<DSResponse> responses = QueryCancellation.doWithin(cancellation,
+                () -> new ArrayList<>(dispatcher.dispatch(fetch)));
+
+        Assertions.assertEquals(-1, responses.get(0).getStatus());
+        Assertions.assertNull(QueryCancellation.current());
+        Assertions.assertEquals(1, fetchEmployee(1, "admin").getTotalRows());
+    }
+
+    @Test
+    public void fetchAfterQueuedWriteIsNotStreamed() throws Exception {
+        ((JDBCHandler) dispatcher.getHandlerByName("EmployeeDS")).getDataSource().setStreamResults(true);
+
+        final IDSRequest queue = Serde.deserializeRequest("""
+                {
+                    "transaction": {
+                        "transactionNum": 6,
+                        "operations": [
+                            {"dataSource": "EmployeeDS", "operationType": "add", "data": {"name": "The first new Record"}},
+                            {"dataSource": "EmployeeDS", "operationType": "fetch", "textMatchStyle": "exact", "data": {"id": 7}}
+                        ]
+                    }
+                }""");
+
+        final List<DSResponse> responses = new ArrayList<>(dispatcher.dispatch(queue));
+
+        // -- rows are read by the transaction connection before the commit
+        Assertions.assertEquals(DSResponseDataContainer.ResponseType.RAW, responses.get(1).getData().getResponseType());
+        final Iterable<Object[]> rows = responses.get(1).getData().getRawDataResponse().getData();
+        Assertions.assertEquals("The first new Record", rows.iterator().next()[1]);
+    }
+
+    @Test
+    public void queueIsRolledBackOnAutoCommitConnection() throws Exception {
+        final JDBCHandler.JDBCPolicy policy = getJDJdbcPolicy();
+        final List<Boolean> autoCommitOnRelease = new ArrayList<>();
+
+        dispatcher = new DSDispatcher(new JDBCHandler.JDBCPolicy() {
+            @Override
+            public void withConnectionDo(String database, Utils.CheckedFunction<Connection, Void> callback) throws Exception {
+                policy.withConnectionDo(database, conn -> {
+                    conn.setAutoCommit(true);
+                    try {
+                        return callback.apply(conn);
+                    } finally {
+                        autoCommitOnRelease.add(conn.getAutoCommit());
+                        conn.setAutoCommit(false);
+                    }
+                });
+            }
+        });
+
+        final DataSource ds = JsonTestSupport.fromJSON(DataSource.class, Handler.Employee);
+        dispatcher.registerHandler(new JDBCHandler(dispatcher.getJdbcPolicy(), dispatcher, ds));
+
+        final IDSRequest request = Serde.deserializeRequest("""
+                {
+                    "transaction": {
+                        "transactionNum": 5,
+                        "operations": [
+                            {"dataSource": "EmployeeDS", "operationType": "add", "data": {"name": "The first new Record"}},
+                            {"dataSource": "EmployeeDS", "operationType": "update", "data": {"id": 100, "name": "Missing"}, "oldValues": {"id": 100, "name": "Missing"}}
+                        ]
+                    }
+                }""");
+
+        final List<DSResponse> responses = new ArrayList<>(dispatcher.dispatch(request));
+        Assertions.assertEquals(-10, responses.get(0).getStatus());
+        Assertions.assertEquals(List.of(true), autoCommitOnRelease);
+
+        Assertions.assertEquals(0, fetchEmployee(7, "The first new Record").getTotalRows());
+    }
+
+    private DSResponse fetchEmployee(int id, String name) throws Exception {
+        final DSRequest fetch = new DSRequest();
+        fetch.setDataSource("EmployeeDS");
+        fetch.setOperationType(DSRequest.OperationType.FETCH);
+        fetch.setTextMatchStyle(DSRequest.TextMatchStyle.EXACT);
+        fetch.wrapAndSetData(Map.of("id", id, "name", name));
+
+        return dispatcher.getHandlerByName("EmployeeDS").handle(fetch);
+    }
+}
@@ -10,6 +10,8 @@ import org.srg.smartclient.isomorphic.criteria.OperatorId;
 import org.srg.smartclient.utils.Serde;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -172,6 +174,27 @@ public class DSRequestDeserializationTest {
         assertEquals(DSRequest.OperationType.REMOVE, req.getOperationType());
     }
 
+    @Test
+    public void parseAddOfMultipleRecords() throws IOException {
+        final String ADD_OPERATION = """
+            {
+                "dataSource":"userAssignmentsDS", 
+                "operationType":"add", 
+                "componentId":"AssignmentsList", 
+                "data":[
+                    {"priority":"1", "region":"USA"},
+                    {"priority":"2", "region":"UA"}
+                ], 
+                "oldValues":null
+            }""";
+
+        final DSRequest req = deserialize(ADD_OPERATION);
+
+        assertEquals(DSRequest.OperationType.ADD, req.getOperationType());
+        assertTrue(req.getData() instanceof DSRequest.ListData l && l.size() == 2);
+        assertEquals("UA", ((DSRequest.ListData) req.getData()).get(1).get("region"));
+    }
+
     @Test
     public void parseFetchWithAdvancedCriteria() throws IOException {
         final String FETCH_WITH_ADVANCED_CRITERIA_OPERATION = """
@@ -218,4 +241,65 @@ public class DSRequestDeserializationTest {
         assertNull(req.getOldValues());
         assertEquals(DSRequest.TextMatchStyle.SUBSTRING, req.getTextMatchStyle());
     }
+
+    @Test
+    public void parseAdvancedCriteriaRegardlessOfFieldOrder() throws IOException {
+        final String CONSTRUCTOR_FIRST = """
+            {
+                "dataSource":"userAssignmentsDS",
+                "operationType":"fetch",
+                "componentId":"AssignmentsList",
+                "data":{
+                    "_constructor" : "AdvancedCriteria",
+                    "criteria": [ {"fieldName" : "firedAt", "operator" : "notBlank"} ],
+                    "operator" : "or"
+                }
+            }""";
+
+        final DSRequest req = deserialize(CONSTRUCTOR_FIRST);
+        assertTrue(req.getData() instanceof AdvancedCriteria);
+        assertEquals(OperatorId.OR, ((AdvancedCriteria) req.getData()).getOperator());
+        assertEquals("firedAt", ((AdvancedCriteria) req.getData()).getCriteria().get(0).getFieldName());
+
+        final String OPERATOR_LAST = """
+            {
+                "dataSource":"userAssignmentsDS",
+                "operationType":"fetch",
+                "componentId":"AssignmentsList",
+                "data":{
+                    "fieldName" : "firedAt",
+                    "operator" : "notBlank"
+                }
+            }""";
+
+        final DSRequest req2 = deserialize(OPERATOR_LAST);
+        assertTrue(req2.getData() instanceof AdvancedCriteria);
+        assertEquals(OperatorId.NOT_BLANK, ((AdvancedCriteria) req2.getData()).getOperator());
+    }
+
+    @Test
+    public void decodeTransactionFromChunks() throws IOException {
+        final byte[] bytes = """
+            {
+                "transaction": {
+                    "transactionNum": 42,
+                    "operations": [
+                        {"dataSource":"EmployeeDS", "operationType":"add", "data":{"name":"Žemaitė"}},
+                        {"dataSource":"EmployeeDS", "operationType":"add", "data":{"name":"Čiurlionis"}}
+                    ]
+                }
+            }""".getBytes(StandardCharsets.UTF_8);
+
+        // odd sized chunks split multibyte characters as well
+        final Serde.RequestDecoder decoder = new Serde.RequestDecoder();
+        for (int from = 0; from < bytes.length; from += 7) {
+            decoder.feed(ByteBuffer.wrap(bytes, from, Math.min(7, bytes.length - from)));
+        }
+
+        final DSTransaction tx = decoder.decode();
+        assertEquals(42, tx.getTransactionNum());
+        assertEquals(2, tx.getOperations().size());
+        assertEquals("Žemaitė", ((Map<?, ?>) tx.getOperations().get(0).getData()).get("name"));
+        assertEquals("Čiurlionis", ((Map<?, ?>) tx.getOperations().get(1).getData()).get("name"));
+    }
 }
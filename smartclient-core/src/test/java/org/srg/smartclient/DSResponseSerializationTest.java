@@ -9,6 +9,7 @@ import org.srg.smartclient.isomorphic.DSResponseDataContainer;
 import org.srg.smartclient.utils.Serde;
 
 import java.io.*;
+import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedList;
@@ -188,6 +189,83 @@ public class DSResponseSerializationTest {
             }""", serializeResponse(ENTITY_FIELD_RESPONSE));
     }
 
+    @Test
+    public void serializeTypedValues() throws IOException {
+        final DSResponse response = DSResponse.successFetch(0, 1,
+                Arrays.asList(
+                        new DSField().setName("id").setType(DSField.FieldType.INTEGER),
+                        new DSField().setName("price").setType(DSField.FieldType.FLOAT),
+                        new DSField().setName("active").setType(DSField.FieldType.BOOLEAN),
+                        new DSField().setName("day").setType(DSField.FieldType.DATE),
+                        new DSField().setName("at").setType(DSField.FieldType.TIME),
+                        new DSField().setName("note").setType(DSField.FieldType.TEXT)
+                ),
+                Collections.singletonList(
+                        new Object[]{7L, new BigDecimal("12.50"), true, java.sql.Date.valueOf("2021-03-04"), java.sql.Time.valueOf("05:06:07"), null}
+                )
+        );
+
+        JsonAssert.assertJsonEquals("""
+            {
+                response:{
+                    status:0,
+                    startRow:0,
+                    endRow:1,
+                    totalRows:-1,
+                    data:[
+                        {id:7, price:12.50, active:true, day:'2021-03-04', at:'05:06:07', note:null}
+                    ]
+                }
+            }""", serializeResponse(response));
+    }
+
+    @Test
+    public void serializeStreamedResponse() throws IOException {
+        final int[] reads = {0};
+        final DSResponse response = DSResponse.successStreamedFetch(0, 2, 2,
+                SIMPLE_RESPONSE.getData().getRawDataResponse().getFields(),
+                action -> {
+                    ++reads[0];
+                    SIMPLE_RESPONSE.getData().getRawDataResponse().getData().forEach(action);
+                }
+        );
+
+        JsonAssert.assertJsonEquals("""
+            {
+                response:{
+                    status:0,
+                    startRow:0,
+                    endRow:2,
+                    totalRows:2,
+                    data:[
+                        {field1:24, field2:'24'},
+                        {field1:42, field2:'42'}
+                    ]
+                }
+            }""", serializeResponse(response));
+        Assertions.assertEquals(1, reads[0]);
+
+        // -- logging does not read the rows
+        final String fieldsOnly = Serde.createMapper().writer()
+                .withAttribute(Serde.RawDataResponseSerializer.SERIALIZE_FIELDS_ONLY, Boolean.TRUE)
+                .writeValueAsString(response.getData());
+        JsonAssert.assertJsonEquals("""
+            {
+                'resulting-fields': ['field1', 'field2']
+            }""", fieldsOnly);
+        Assertions.assertEquals(1, reads[0]);
+
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (final OutputStreamWriter w = new OutputStreamWriter(bos, "UTF-8")){
+            Serde.serializeResponseAsCSV(w, ',', response);
+        }
+        Assertions.assertEquals("""
+            "field1","field2"
+            24,"24"
+            42,"42"
+            """, bos.toString());
+    }
+
     @Test
     public void serializeSimpleResponseAsCSV() throws IOException {
         final ByteArrayOutputStream bos = new ByteArrayOutputStream();
@@ -206,4 +284,27 @@ public class DSResponseSerializationTest {
                 """, result);
         }
     }
+
+    @Test
+    public void quotesAreEscapedInCSV() throws IOException {
+        final DSResponse response = DSResponse.successFetch(0, 1,
+                Arrays.asList(
+                        new DSField().setName("id").setType(DSField.FieldType.INTEGER),
+                        new DSField().setName("note").setType(DSField.FieldType.TEXT)
+                ),
+                Collections.singletonList(
+                        new Object[]{1L, "The \"quoted\", with a comma"}
+                )
+        );
+
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (final OutputStreamWriter w = new OutputStreamWriter(bos, "UTF-8")){
+            Serde.serializeResponseAsCSV(w, ',', response);
+
+            Assertions.assertEquals("""
+                "id","note"
+                1,"The ""quoted"", with a comma"
+                """, bos.toString());
+        }
+    }
 }
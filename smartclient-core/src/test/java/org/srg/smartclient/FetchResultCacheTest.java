@@ -0,0 +1,161 @@
+package org.srg.smartclient;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.srg.smartclient.isomorphic.DSField;
+import org.srg.smartclient.isomorphic.DSRequest;
+import org.srg.smartclient.isomorphic.DSResponse;
+import org.srg.smartclient.isomorphic.DataSource;
+import org.srg.smartclient.isomorphic.IDSRequest;
+import org.srg.smartclient.utils.Serde;
+import org.srg.smartclient.utils.Utils;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FetchResultCacheTest extends AbstractJDBCHandlerTest<JDBCHandler> {
+    private final AtomicInteger readOnlyCheckouts = new AtomicInteger();
+    private DSDispatcher dispatcher;
+    private JDBCHandler employeeHandler;
+
+    @Override
+    protected Class<JDBCHandler> getHandlerClass() {
+        return JDBCHandler.class;
+    }
+
+    @BeforeEach
+    public void setupDispatcher() {
+        final JDBCHandler.JDBCPolicy policy = getJDJdbcPolicy();
+        dispatcher = new DSDispatcher(new JDBCHandler.JDBCPolicy() {
+            @Override
+            public void withConnectionDo(String database, Utils.CheckedFunction<Connection, Void> callback) throws Exception {
+                policy.withConnectionDo(database, callback);
+            }
+
+            @Override
+            public void withReadOnlyConnectionDo(String database, Utils.CheckedFunction<Connection, Void> callback) throws Exception {
+                readOnlyCheckouts.incrementAndGet();
+                policy.withConnectionDo(database, callback);
+            }
+        });
+
+        final DataSource locationDS = JsonTestSupport.fromJSON(DataSource.class, Handler.Location);
+        dispatcher.registerHandler(new JDBCHandler(dispatcher.getJdbcPolicy(), dispatcher, locationDS));
+
+        final DataSource employeeDS = JsonTestSupport.fromJSON(DataSource.class, Handler.Employee);
+        employeeDS.setCacheResults(true);
+        employeeHandler = withExtraFields(new JDBCHandler(dispatcher.getJdbcPolicy(), dispatcher, employeeDS), """
+                [
+                    {
+                        name:'location',
+                        foreignKey:'LocationDS.id',
+                        dbName:'location_id',
+                        displayField: 'location_city'
+                    },
+                    {
+                        name:'location_city',
+                        type:'TEXT',
+                        includeFrom:'LocationDS.city'
+                    }
+                ]""");
+        dispatcher.registerHandler(employeeHandler);
+    }
+
+    @Test
+    public void repeatedFetchIsServedFromCache() throws Exception {
+        final DSResponse first = fetchEmployee(1);
+        final DSResponse second = fetchEmployee(1);
+
+        Assertions.assertEquals(1, readOnlyCheckouts.get());
+        Assertions.assertNotSame(first, second);
+        JsonTestSupport.assertJsonEquals("""
+                {
+                    status: 0,
+                    startRow: 0,
+                    endRow: 1,
+                    totalRows: 1,
+                    data:[
+                        {
+                            id:1,
+                            name: 'admin',
+                            location: 1,
+                            location_city: 'Kharkiv'
+                        }
+                    ]
+                }""", second);
+
+        // -- another criteria is not served from the cache
+        fetchEmployee(2);
+        Assertions.assertEquals(2, readOnlyCheckouts.get());
+
+        final List<FetchResultCache.Metrics> metrics = dispatcher.getFetchResultCacheMetrics();
+        Assertions.assertEquals(1, metrics.size());
+        Assertions.assertEquals("EmployeeDS", metrics.get(0).dataSource());
+        Assertions.assertEquals(1, metrics.get(0).hits());
+        Assertions.assertEquals(2, metrics.get(0).misses());
+        Assertions.assertEquals(2, metrics.get(0).size());
+    }
+
+    @Test
+    public void writeToReferencedDataSourceInvalidatesCache() throws Exception {
+        fetchEmployee(1);
+
+        final IDSRequest update = Serde.deserializeRequest("""
+                {"dataSource": "LocationDS", "operationType": "update", "data": {"id": 1, "city": "Kyiv"}, "oldValues": {"id": 1, "city": "Kharkiv"}}""");
+        final List<DSResponse> responses = new ArrayList<>(dispatcher.dispatch(update));
+        Assertions.assertEquals(0, responses.get(0).getStatus());
+
+        final DSResponse response = fetchEmployee(1);
+        Assertions.assertEquals(2, readOnlyCheckouts.get());
+
+        final Object[] row = response.getData().getRawDataResponse().getData().iterator().next();
+        Assertions.assertEquals("Kyiv", row[row.length - 1]);
+        Assertions.assertEquals(1, employeeHandler.getFetchResultCache().getMetrics().invalidations());
+    }
+
+    @Test
+    public void leastRecentlyUsedAndExpiredEntriesAreEvicted() throws Exception {
+        final FetchResultCache cache = new FetchResultCache("TestDS", 1, 60000);
+        final FetchResultCache.Key k1 = FetchResultCache.Key.of(request(1));
+        final FetchResultCache.Key k2 = FetchResultCache.Key.of(request(2));
+        final DSResponse response = DSResponse.successFetch(0, 1, 1,
+                List.of(new DSField().setName("id").setType(DSField.FieldType.INTEGER)),
+                List.<Object[]>of(new Object[]{1}));
+
+        cache.put(k1, response, cache.generation());
+        cache.put(k2, response, cache.generation());
+        Assertions.assertNull(cache.get(k1));
+        Assertions.assertNotNull(cache.get(k2));
+        Assertions.assertEquals(1, cache.getMetrics().evictions());
+
+        // -- the response fetched before the invalidation is not stored
+        final long generation = cache.generation();
+        cache.invalidate();
+        cache.put(k1, response, generation);
+        Assertions.assertEquals(0, cache.size());
+
+        final FetchResultCache expiring = new FetchResultCache("TestDS", 1, 0);
+        expiring.put(k1, response, expiring.generation());
+        Assertions.assertNull(expiring.get(k1));
+        Assertions.assertEquals(1, expiring.getMetrics().evictions());
+    }
+
+    private DSRequest request(int id) {
+        final DSRequest fetch = new DSRequest();
+        fetch.setDataSource("EmployeeDS");
+        fetch.setOperationType(DSRequest.OperationType.FETCH);
+        fetch.setTextMatchStyle(DSRequest.TextMatchStyle.EXACT);
+        fetch.setOutputs("id, name, location, location_city");
+        fetch.wrapAndSetData(Map.of("id", id));
+        return fetch;
+    }
+
+    private DSResponse fetchEmployee(int id) throws Exception {
+        final List<DSResponse> responses = new ArrayList<>(dispatcher.dispatch(request(id)));
+        return responses.get(0);
+    }
+}
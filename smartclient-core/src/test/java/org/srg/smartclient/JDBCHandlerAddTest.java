@@ -11,14 +11,31 @@ import org.srg.smartclient.utils.ContextualRuntimeException;
 import org.srg.smartclient.utils.Serde;
 
 import java.io.StringWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 
 public class JDBCHandlerAddTest extends AbstractJDBCHandlerTest<JDBCHandler> {
+    /**
+     * If set, the statements return at most that many generated keys, as some drivers do for a batch
+     */
+    private Integer generatedKeysLimit;
 
     @Override
     protected Class<JDBCHandler> getHandlerClass() {
         return JDBCHandler.class;
     }
 
+    @Override
+    protected JDBCHandler.JDBCPolicy getJDJdbcPolicy() {
+        final JDBCHandler.JDBCPolicy policy = super.getJDJdbcPolicy();
+        return (db, callback) -> policy.withConnectionDo(db,
+                conn -> callback.apply(generatedKeysLimit != null ? withTruncatedGeneratedKeys(conn, generatedKeysLimit) : conn));
+    }
+
     @Test
     public void simpleAdd() throws Exception {
 
@@ -60,38 +77,92 @@ public class JDBCHandlerAddTest extends AbstractJDBCHandlerTest<JDBCHandler> {
                  {
                      status: 0,
                      data:[
-                        {
-                             id:1,
-                             name: 'admin'
-                         },
                          {
-                             id:2,
-                             name: 'developer'
-                         },
-                         {
-                             id:3,
-                             name: 'UseR3'
-                         },
-                                                 {
-                             id:4,
-                             name: 'manager1'
-                         },
-                                                 {
-                             id:5,
-                             name: 'manager2'
-                         },
+                             id:7,
+                             name: 'A new Record'
+                         }
+                     ]
+                }""", response);
+    }
+
+    @Test
+    public void batchAdd() throws Exception {
+        final DSRequest request = JsonTestSupport.fromJSON(new TypeReference<>(){}, """
+               {
+                 dataSource : "EmployeeDS",
+                 operationType : "ADD",
+                 data : [
+                   {name: "The first new Record"},
+                   {name: "The second new Record"}
+                 ]
+               }
+            """);
+
+        final DSResponse response = handler.handleAdd(request);
+        JsonTestSupport.assertJsonEquals("""
+                 {
+                     status: 0,
+                     data:[
                          {
-                             id:6,
-                             name: 'user2'
+                             id:7,
+                             name: 'The first new Record'
                          },
                          {
-                             id:7,
-                             name: 'A new Record'
+                             id:8,
+                             name: 'The second new Record'
                          }
                      ]
                 }""", response);
     }
 
+    @Test
+    public void addingMustFails_if_generatedKeyIsMissing() throws Exception {
+        generatedKeysLimit = 0;
+
+        final DSRequest request = JsonTestSupport.fromJSON(new TypeReference<>(){}, """
+               {
+                 dataSource : "EmployeeDS",
+                 operationType : "ADD",
+                 data : {
+                   name: "A new Record"
+                 }
+               }
+            """);
+
+        final Exception ex = Assertions.assertThrows(Exception.class, () -> {
+            handler.handleAdd(request);
+        });
+
+        Assertions.assertTrue(ex.getMessage().contains("SQL add query execution failed."));
+        Assertions.assertTrue(ex.getCause().getMessage().contains("Generated keys do not match the added row"), ex.getCause().getMessage());
+    }
+
+    @Test
+    public void batchAddFails_if_generatedKeysAreMissing() throws Exception {
+        generatedKeysLimit = 1;
+
+        final DSRequest request = JsonTestSupport.fromJSON(new TypeReference<>(){}, """
+               {
+                 dataSource : "EmployeeDS",
+                 operationType : "ADD",
+                 data : [
+                   {name: "The first new Record"},
+                   {name: "The second new Record"}
+                 ]
+               }
+            """);
+
+        final Exception ex = Assertions.assertThrows(Exception.class, () -> {
+            handler.handleAdd(request);
+        });
+
+        Throwable t = ex;
+        while (t.getCause() != null && !t.getMessage().contains("Generated keys do not match")) {
+            t = t.getCause();
+        }
+        Assertions.assertTrue(t.getMessage().contains("Generated keys do not match the 2 batched row(s)"), ex.getMessage());
+    }
+
     @Test
     public void addingMustFails_if_providedIdAlreadyExists() throws Exception {
         withExtraFields(ExtraField.Email);
@@ -119,5 +190,38 @@ public class JDBCHandlerAddTest extends AbstractJDBCHandlerTest<JDBCHandler> {
         Assertions.assertTrue( ex.getMessage().contains("SQL add query execution failed."));
     }
 
+    private static Connection withTruncatedGeneratedKeys(Connection conn, int limit) {
+        return (Connection) Proxy.newProxyInstance(JDBCHandlerAddTest.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    final Object result = invoke(conn, method, args);
+                    if (!(result instanceof PreparedStatement st)) {
+                        return result;
+                    }
+
+                    return Proxy.newProxyInstance(JDBCHandlerAddTest.class.getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                            (stProxy, stMethod, stArgs) -> {
+                                if (!stMethod.getName().equals("getGeneratedKeys")) {
+                                    return invoke(st, stMethod, stArgs);
+                                }
+
+                                final ResultSet rs = st.getGeneratedKeys();
+                                final int[] rows = {0};
+                                return Proxy.newProxyInstance(JDBCHandlerAddTest.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                                        (rsProxy, rsMethod, rsArgs) -> {
+                                            if (rsMethod.getName().equals("next") && ++rows[0] > limit) {
+                                                return false;
+                                            }
+                                            return invoke(rs, rsMethod, rsArgs);
+                                        });
+                            });
+                });
+    }
 
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
 }
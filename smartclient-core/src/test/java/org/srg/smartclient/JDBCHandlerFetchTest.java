@@ -1,8 +1,12 @@
 package org.srg.smartclient;
 
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.srg.smartclient.isomorphic.DSField;
 import org.srg.smartclient.isomorphic.DSRequest;
 import org.srg.smartclient.isomorphic.DSResponse;
+import org.srg.smartclient.isomorphic.DSResponseDataContainer;
+import org.srg.smartclient.isomorphic.DataSource;
 
 import java.util.Collections;
 import java.util.List;
@@ -229,6 +233,79 @@ public class JDBCHandlerFetchTest extends AbstractJDBCHandlerTest<JDBCHandler> {
                 }""", response);
     }
 
+    @Test
+    public void fetchWithoutIncludeFromFieldPrunesJoin() throws Exception {
+        withExtraFields(ExtraField.IncludeFromLocation);
+        withHandlers(Handler.Location);
+
+        final DSRequest request = new DSRequest();
+        request.setOutputs("id, name");
+
+        final SQLFetchContext<JDBCHandler> ctx = new SQLFetchContext<>(handler, request, null);
+        Assertions.assertFalse(ctx.getGenericQuery().contains("JOIN"));
+
+        request.setOutputs("id, locationCity");
+        final SQLFetchContext<JDBCHandler> ctx2 = new SQLFetchContext<>(handler, request, null);
+        Assertions.assertTrue(ctx2.getGenericQuery().contains("JOIN"));
+    }
+
+    @Test
+    public void fetchUsesTypedColumnReaders() throws Exception {
+        withExtraFields(ExtraField.SqlCalculated);
+
+        final DSRequest request = new DSRequest();
+        request.setOutputs("id, name, calculated");
+
+        final SQLFetchContext.RowLayout layout = new SQLFetchContext<>(handler, request, null).getRowLayout();
+        Assertions.assertArrayEquals(
+                new ColumnReader[] {ColumnReader.OBJECT, ColumnReader.STRING, ColumnReader.OBJECT},
+                layout.readers()
+        );
+        Assertions.assertArrayEquals(new int[] {0}, layout.pkColumns());
+        Assertions.assertEquals(0, layout.subEntityColumns().length);
+
+        // -- integers keep the representation of the column type
+        request.wrapAndSetData(Map.of("id", 2));
+        final Object[] row = handler.handleFetch(request).getData().getRawDataResponse().getData().iterator().next();
+        Assertions.assertEquals(Integer.class, row[0].getClass());
+    }
+
+    @Test
+    public void fetchWithoutCalculatedCriteriaIsFlat() throws Exception {
+        withExtraFields(ExtraField.SqlCalculated);
+
+        final DSRequest request = new DSRequest();
+        request.setOutputs("id, name, calculated");
+        request.wrapAndSetData(Map.of("name", "user"));
+        request.setTextMatchStyle(DSRequest.TextMatchStyle.SUBSTRING);
+        request.setSortBy(List.of("name"));
+
+        final SQLFetchContext<JDBCHandler> ctx = new SQLFetchContext<>(handler, request, null);
+        Assertions.assertTrue(ctx.isFlat());
+        Assertions.assertFalse(ctx.buildCountQuery().contains("opaque"));
+        Assertions.assertFalse(ctx.getOrderClause().contains("opaque"));
+
+        request.setSortBy(List.of("calculated"));
+        final SQLFetchContext<JDBCHandler> ctx2 = new SQLFetchContext<>(handler, request, null);
+        Assertions.assertFalse(ctx2.isFlat());
+
+        final DSResponse response = handler.handleFetch(request);
+        JsonTestSupport.assertJsonEquals("""
+                {
+                    status: 0,
+                    startRow: 0,
+                    endRow: 1,
+                    totalRows: 1,
+                    data: [
+                        {
+                            id: 6,
+                            name: 'user2',
+                            calculated: '6_user2'
+                        }
+                    ]
+                }""", response);
+    }
+
     @Test
     public void fetchPaginatedWithSort() throws Exception {
 
@@ -329,6 +406,352 @@ public class JDBCHandlerFetchTest extends AbstractJDBCHandlerTest<JDBCHandler> {
             }""", response);
     }
 
+    @Test
+    public void fetchWithArrayValueFilter() throws Exception {
+        DSRequest request = new DSRequest();
+        request.wrapAndSetData(Map.of("id", List.of(2, 5)));
+
+        final DSResponse response = handler.handleFetch(request);
+        JsonTestSupport.assertJsonEquals("""
+            {
+                status: 0,
+                startRow: 0,
+                endRow: 2,
+                totalRows: 2,
+                data:[
+                    {
+                        id:2,
+                        name: 'developer'
+                    },
+                    {
+                        id:5,
+                        name: 'manager2'
+                    }
+                ]
+            }""", response);
+    }
+
+    @Test
+    public void windowFunctionSupportIsDeterminedByDatabaseVersion() {
+        Assertions.assertTrue(JDBCHandler.isWindowFunctionSupported("H2", "1.4.200 (2019-10-14)", 1, 4));
+        Assertions.assertTrue(JDBCHandler.isWindowFunctionSupported("H2", "1.4.198", 1, 4));
+        Assertions.assertFalse(JDBCHandler.isWindowFunctionSupported("H2", "1.4.197 (2018-03-18)", 1, 4));
+        Assertions.assertFalse(JDBCHandler.isWindowFunctionSupported("H2", "1.4.99", 1, 4));
+        Assertions.assertTrue(JDBCHandler.isWindowFunctionSupported("H2", "2.0.202", 2, 0));
+        Assertions.assertTrue(JDBCHandler.isWindowFunctionSupported("PostgreSQL", "9.6.1", 9, 6));
+        Assertions.assertFalse(JDBCHandler.isWindowFunctionSupported("Oracle", "Oracle Database 19c", 19, 0));
+        Assertions.assertFalse(JDBCHandler.isWindowFunctionSupported("MySQL", "10.1.48-MariaDB", 10, 1));
+    }
+
+    @Test
+    public void fetchPaginatedWithWindowFunctionTotal() throws Exception {
+        handler.getDataSource().setTotalRowsMode(DataSource.TotalRowsMode.WINDOW_FUNCTION);
+
+        DSRequest request = new DSRequest();
+        request.setStartRow(2);
+        request.setEndRow(4);
+
+        final DSResponse response = handler.handleFetch(request);
+        JsonTestSupport.assertJsonEquals("""
+                {
+                    status: 0,
+                    startRow: 2,
+                    endRow: 4,
+                    totalRows: 6,
+                    data:[
+                        {
+                            id:3,
+                            name: 'UseR3'
+                        },
+                        {
+                            id:4,
+                            name: 'manager1'
+                        }
+                    ]
+                }""", response);
+
+        // -- a page beyond the last one does not carry the total
+        request.setStartRow(10);
+        request.setEndRow(12);
+
+        final DSResponse response2 = handler.handleFetch(request);
+        JsonTestSupport.assertJsonEquals("""
+                {
+                    status: 0,
+                    startRow: 10,
+                    endRow: 10,
+                    totalRows: 6,
+                    data:[]
+                }""", response2);
+    }
+
+    @Test
+    public void fetchPaginatedWithProgressiveLoading() throws Exception {
+        handler.getDataSource().setProgressiveLoading(true);
+
+        DSRequest request = new DSRequest();
+        request.setStartRow(2);
+        request.setEndRow(4);
+
+        // -- more rows exist, total is an estimate
+        final DSResponse response = handler.handleFetch(request);
+        JsonTestSupport.assertJsonEquals("""
+                {
+                    status: 0,
+                    startRow: 2,
+                    endRow: 4,
+                    totalRows: 6,
+                    data:[
+                        {
+                            id:3,
+                            name: 'UseR3'
+                        },
+                        {
+                            id:4,
+                            name: 'manager1'
+                        }
+                    ]
+                }""", response);
+
+        // -- the last page, total is exact
+        request.setStartRow(4);
+        request.setEndRow(8);
+
+        final DSResponse response2 = handler.handleFetch(request);
+        JsonTestSupport.assertJsonEquals("""
+                {
+                    status: 0,
+                    startRow: 4,
+                    endRow: 6,
+                    totalRows: 6,
+                    data:[
+                        {
+                            id:5,
+                            name: 'manager2'
+                        },
+                        {
+                            id:6,
+                            name: 'user2'
+                        }
+                    ]
+                }""", response2);
+    }
+
+    @Test
+    public void fetchPaginatedWithKeysetPagination() throws Exception {
+        handler.getDataSource().setKeysetPagination(true);
+
+        DSRequest request = new DSRequest();
+        request.setComponentId("grid");
+        request.setSortBy(List.of("-name"));
+        request.setStartRow(0);
+        request.setEndRow(2);
+
+        handler.handleFetch(request);
+        Assertions.assertEquals(1, handler.getKeysetCursorCache().size());
+
+        // -- the next sequential page, fetched by seek
+        request.setStartRow(2);
+        request.setEndRow(4);
+
+        final DSResponse response = handler.handleFetch(request);
+        JsonTestSupport.assertJsonEquals_WithOrder("""
+                {
+                    status: 0,
+                    startRow: 2,
+                    endRow: 4,
+                    totalRows: 6,
+                    data:[
+                        {
+                            id:4,
+                            name: 'manager1'
+                        },
+                        {
+                            id:2,
+                            name: 'developer'
+                        }
+                    ]
+                }""", response);
+
+        // -- random jump, fetched with OFFSET
+        request.setStartRow(1);
+        request.setEndRow(3);
+
+        final DSResponse response2 = handler.handleFetch(request);
+        JsonTestSupport.assertJsonEquals_WithOrder("""
+                {
+                    status: 0,
+                    startRow: 1,
+                    endRow: 3,
+                    totalRows: 6,
+                    data:[
+                        {
+                            id:5,
+                            name: 'manager2'
+                        },
+                        {
+                            id:4,
+                            name: 'manager1'
+                        }
+                    ]
+                }""", response2);
+    }
+
+    @Test
+    public void keysetPaginationIsNotUsedForNullableSortField() throws Exception {
+        handler.getDataSource().setKeysetPagination(true);
+        withExtraFields("""
+                [
+                    {
+                        name:'firedAt',
+                        type:'datetime'
+                    }
+                ]""");
+
+        DSRequest request = new DSRequest();
+        request.setComponentId("grid");
+        request.setOutputs("id, firedAt");
+        request.setSortBy(List.of("-firedAt"));
+        request.setStartRow(0);
+        request.setEndRow(2);
+
+        handler.handleFetch(request);
+        Assertions.assertEquals(0, handler.getKeysetCursorCache().size());
+
+        // -- rows with NULL firedAt follow the non NULL ones and must not be skipped
+        request.setStartRow(2);
+        request.setEndRow(4);
+
+        final DSResponse response = handler.handleFetch(request);
+        Assertions.assertEquals(6, response.getTotalRows());
+
+        int rows = 0;
+        for (Object[] row : response.getData().getRawDataResponse().getData()) {
+            Assertions.assertNull(row[1]);
+            ++rows;
+        }
+        Assertions.assertEquals(2, rows);
+    }
+
+    @Test
+    public void fetchWithStreamResults() throws Exception {
+        handler.getDataSource().setStreamResults(true);
+
+        DSRequest request = new DSRequest();
+        request.setStartRow(4);
+        request.setEndRow(10);
+
+        final DSResponse response = handler.handleFetch(request);
+        JsonTestSupport.assertJsonEquals("""
+                {
+                    status: 0,
+                    startRow: 4,
+                    endRow: 6,
+                    totalRows: 6,
+                    data:[
+                        {
+                            id:5,
+                            name: 'manager2'
+                        },
+                        {
+                            id:6,
+                            name: 'user2'
+                        }
+                    ]
+                }""", response);
+    }
+
+    @Test
+    public void fetchIsNotStreamedIfConcurrencyIsLimited() throws Exception {
+        handler.getDataSource().setStreamResults(true);
+        handler.getDataSource().setMaxConcurrentRequests(1);
+
+        DSRequest request = new DSRequest();
+        request.setExportResults(true);
+
+        final DSResponse response = handler.handleFetch(request);
+        Assertions.assertEquals(DSResponseDataContainer.ResponseType.RAW, response.getData().getResponseType());
+        Assertions.assertEquals(6, response.getTotalRows());
+    }
+
+    @Test
+    public void fetchIsNotStreamedWithProgressiveLoading() throws Exception {
+        handler.getDataSource().setStreamResults(true);
+        handler.getDataSource().setProgressiveLoading(true);
+
+        DSRequest request = new DSRequest();
+        request.setStartRow(0);
+        request.setEndRow(2);
+
+        final DSResponse response = handler.handleFetch(request);
+        Assertions.assertEquals(DSResponseDataContainer.ResponseType.RAW, response.getData().getResponseType());
+        // -- estimated by the look-ahead row, rather than counted
+        Assertions.assertEquals(4, response.getTotalRows());
+    }
+
+    @Test
+    public void fetchForExportSkipsCount() throws Exception {
+        DSRequest request = new DSRequest();
+        request.setExportResults(true);
+        request.wrapAndSetData(Map.of("id", 5));
+
+        final DSResponse response = handler.handleFetch(request);
+        JsonTestSupport.assertJsonEquals("""
+                {
+                    status: 0,
+                    startRow: 0,
+                    endRow: 0,
+                    totalRows: -1,
+                    data:[
+                        {
+                            id:5,
+                            name: 'manager2'
+                        }
+                    ]
+                }""", response);
+    }
+
+    @Test
+    public void fetchReusesCompiledPlan() throws Exception {
+        final FetchPlanCache cache = handler.getFetchPlanCache();
+        final long hits = cache.getHits();
+
+        DSRequest request = new DSRequest();
+        request.wrapAndSetData(Map.of("id", 2));
+        handler.handleFetch(request);
+
+        // -- the same shape with a different criteria value
+        request = new DSRequest();
+        request.wrapAndSetData(Map.of("id", 5));
+        final DSResponse response = handler.handleFetch(request);
+
+        Assertions.assertEquals(hits + 1, cache.getHits());
+        JsonTestSupport.assertJsonEquals("""
+            {
+                status: 0,
+                startRow: 0,
+                endRow: 1,
+                totalRows: 1,
+                data:[
+                    {
+                        id:5,
+                        name: 'manager2'
+                    }
+                ]
+            }""", response);
+    }
+
+    @Test
+    public void fetchWithEmptyArrayValueFilter() throws Exception {
+        DSRequest request = new DSRequest();
+        request.wrapAndSetData(Map.of("id", List.of()));
+
+        final DSResponse response = handler.handleFetch(request);
+        Assertions.assertEquals(0, response.getStatus());
+        Assertions.assertEquals(0, response.getTotalRows());
+        Assertions.assertFalse(response.getData().getRawDataResponse().getData().iterator().hasNext());
+    }
+
     @Test
     public void fetchWithIncludeFromField() throws Exception {
         withExtraFields(ExtraField.IncludeFromLocation);
@@ -787,4 +1210,95 @@ public class JDBCHandlerFetchTest extends AbstractJDBCHandlerTest<JDBCHandler> {
                ]
             }""", response);
     }
+
+    @Test
+    public void fetchIncludeSummaryWithGroupedQuery() throws Exception {
+        withExtraFields(ExtraField.SqlCalculated);
+        withHandlers(Handler.EmployeeRole);
+        withExtraFields("""
+                [{
+                    name:'concatRoles',
+                    type:'TEXT',
+                    includeFrom:'EmployeeRoleDS.role',
+                    includeSummaryFunction:'CONCAT',
+                    multiple:true
+                }]""", ExtraFieldBase.Employee_RolesFromEmployeeRole);
+
+        final String expected = """
+                {
+                    status: 0,
+                    startRow: 0,
+                    endRow: 6,
+                    totalRows: 6,
+                    data: [
+                        {id: 1, concatRoles: 'Admin, Developer'},
+                        {id: 2, concatRoles: 'Developer'},
+                        {id: 3},
+                        {id: 4, concatRoles: 'PM'},
+                        {id: 5, concatRoles: 'PM'},
+                        {id: 6}
+                    ]
+                }""";
+
+        final DSRequest request = new DSRequest();
+        request.setOutputs("id, concatRoles");
+
+        final SQLFetchContext<JDBCHandler> ctx = new SQLFetchContext<>(handler, request, null);
+        Assertions.assertEquals(1, ctx.getGroupedSummaryFields().size());
+        JsonTestSupport.assertJsonEquals(expected, handler.handleFetch(request));
+
+        // -- correlated sub-select must produce the same
+        handler.getField("concatRoles").setIncludeSummaryStrategy(DSField.IncludeSummaryStrategy.SUBSELECT);
+        handler.getFetchPlanCache().invalidate();
+
+        final SQLFetchContext<JDBCHandler> ctx2 = new SQLFetchContext<>(handler, request, null);
+        Assertions.assertTrue(ctx2.getGroupedSummaryFields().isEmpty());
+        JsonTestSupport.assertJsonEquals(expected, handler.handleFetch(request));
+    }
+
+    @Test
+    public void groupedSummaryIsPostProcessed() throws Exception {
+        withHandlers(Handler.EmployeeRole);
+        withExtraFields("""
+                [{
+                    name:'concatRoles',
+                    type:'TEXT',
+                    includeFrom:'EmployeeRoleDS.role',
+                    includeSummaryFunction:'CONCAT',
+                    multiple:true
+                }]""", ExtraFieldBase.Employee_RolesFromEmployeeRole);
+
+        final JDBCHandler postProcessingHandler = new JDBCHandler(getJDJdbcPolicy(), dsRegistry, handler.getDataSource()) {
+            @Override
+            protected Object postProcessFieldValue(SQLFetchContext<JDBCHandler> ctx, Map<String, Object> rowPkValues, DSField dsf, Object value) {
+                return "concatRoles".equals(dsf.getName()) && value != null ? value.toString().toUpperCase() : value;
+            }
+        };
+
+        final String expected = """
+                {
+                    status: 0,
+                    startRow: 0,
+                    endRow: 2,
+                    totalRows: 6,
+                    data: [
+                        {id: 1, concatRoles: 'ADMIN, DEVELOPER'},
+                        {id: 2, concatRoles: 'DEVELOPER'}
+                    ]
+                }""";
+
+        final DSRequest request = new DSRequest();
+        request.setOutputs("id, concatRoles");
+        request.setStartRow(0);
+        request.setEndRow(2);
+
+        postProcessingHandler.getField("concatRoles").setIncludeSummaryStrategy(DSField.IncludeSummaryStrategy.GROUPED);
+        Assertions.assertEquals(1, new SQLFetchContext<>(postProcessingHandler, request, null).getGroupedSummaryFields().size());
+        JsonTestSupport.assertJsonEquals(expected, postProcessingHandler.handleFetch(request));
+
+        // -- correlated sub-select must produce the same
+        postProcessingHandler.getField("concatRoles").setIncludeSummaryStrategy(DSField.IncludeSummaryStrategy.SUBSELECT);
+        postProcessingHandler.getFetchPlanCache().invalidate();
+        JsonTestSupport.assertJsonEquals(expected, postProcessingHandler.handleFetch(request));
+    }
 }
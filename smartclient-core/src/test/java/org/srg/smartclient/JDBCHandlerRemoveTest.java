@@ -0,0 +1,101 @@
+package org.srg.smartclient;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.srg.smartclient.isomorphic.DSRequest;
+import org.srg.smartclient.isomorphic.DSResponse;
+
+import java.util.Map;
+
+public class JDBCHandlerRemoveTest extends AbstractJDBCHandlerTest<JDBCHandler> {
+
+    @Override
+    protected Class<JDBCHandler> getHandlerClass() {
+        return JDBCHandler.class;
+    }
+
+    @Test
+    public void simpleRemove() throws Exception {
+        final DSRequest request = JsonTestSupport.fromJSON(new TypeReference<>(){}, """
+               {
+                 dataSource : "EmployeeDS",
+                 operationType : "REMOVE",
+                 data : {
+                   id: 6,
+                   name: 'user2',
+                   _selection_2: true
+                 },
+                 oldValues : null
+               }
+            """);
+
+        final DSResponse response = handler.handle(request);
+        JsonTestSupport.assertJsonEquals("""
+                 {
+                     status: 0,
+                     data:[
+                         {
+                             id:6
+                         }
+                     ]
+                }""", response);
+
+        final DSRequest fetch = new DSRequest();
+        fetch.wrapAndSetData(Map.of("id", 6));
+        final DSResponse fetched = handler.handleFetch(fetch);
+        Assertions.assertEquals(0, fetched.getTotalRows());
+    }
+
+    @Test
+    public void batchRemove() throws Exception {
+        withExtraFields(ExtraField.SqlCalculated);
+        final JDBCHandler employeeRoleHandler = withHandlers(Handler.EmployeeRole);
+
+        final DSRequest request = JsonTestSupport.fromJSON(new TypeReference<>(){}, """
+               {
+                 dataSource : "EmployeeRoleDS",
+                 operationType : "REMOVE",
+                 data : [
+                   {employee: 4, role: 'PM'},
+                   {employee: 5, role: 'PM'}
+                 ]
+               }
+            """);
+
+        final DSResponse response = employeeRoleHandler.handle(request);
+        JsonTestSupport.assertJsonEquals("""
+                 {
+                     status: 0,
+                     data:[
+                         {
+                             employee:4,
+                             role:'PM'
+                         },
+                         {
+                             employee:5,
+                             role:'PM'
+                         }
+                     ]
+                }""", response);
+
+        final DSResponse fetched = employeeRoleHandler.handleFetch(new DSRequest());
+        Assertions.assertEquals(3, fetched.getTotalRows());
+    }
+
+    @Test
+    public void removeMustFail_ifPkIsNotProvided() throws Exception {
+        final DSRequest request = JsonTestSupport.fromJSON(new TypeReference<>(){}, """
+               {
+                 dataSource : "EmployeeDS",
+                 operationType : "REMOVE",
+                 data : {
+                   name: 'user2'
+                 }
+               }
+            """);
+
+        final Exception ex = Assertions.assertThrows(Exception.class, () -> handler.handle(request));
+        Assertions.assertTrue(ex.getMessage().contains("PK fields must be provided"));
+    }
+}
@@ -4,12 +4,14 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.srg.smartclient.isomorphic.DSField;
 import org.srg.smartclient.isomorphic.DSRequest;
 import org.srg.smartclient.isomorphic.DSResponse;
 import org.srg.smartclient.utils.ContextualRuntimeException;
 import org.srg.smartclient.utils.Serde;
 
 import java.io.StringWriter;
+import java.util.Map;
 
 
 public class JDBCHandlerUpdateTest extends AbstractJDBCHandlerTest<JDBCHandler> {
@@ -127,6 +129,114 @@ public class JDBCHandlerUpdateTest extends AbstractJDBCHandlerTest<JDBCHandler>
                 }""", response);
     }
 
+    @Test
+    public void updateResponseIsPostProcessed() throws Exception {
+        withExtraFields(ExtraField.Email);
+
+        final JDBCHandler postProcessingHandler = new JDBCHandler(getJDJdbcPolicy(), dsRegistry, handler.getDataSource()) {
+            @Override
+            protected Object postProcessFieldValue(SQLFetchContext<JDBCHandler> ctx, Map<String, Object> rowPkValues, DSField dsf, Object value) {
+                return "email".equals(dsf.getName()) ? "***" : value;
+            }
+        };
+
+        final DSRequest request = JsonTestSupport.fromJSON(new TypeReference<>(){}, """
+               {
+                 dataSource : "EmployeeDS",
+                 operationType : "UPDATE",
+                 data : {
+                   id : 2,
+                   email: 'updated-developer@acme.org'
+                 },
+                 oldValues : {
+                   id : 2,
+                   name : 'developer',
+                   email: 'developer@acme.org'
+                 }
+               }
+            """);
+
+        JsonTestSupport.assertJsonEquals("""
+                 {
+                     status: 0,
+                     data:[
+                         {
+                             id:2,
+                             email:'***',
+                             name:'developer'
+                         }
+                     ]
+                }""", postProcessingHandler.handleUpdate(request));
+    }
+
+    @Test
+    public void batchUpdate() throws Exception {
+        final DSRequest request = JsonTestSupport.fromJSON(new TypeReference<>(){}, """
+               {
+                 dataSource : "EmployeeDS",
+                 operationType : "UPDATE",
+                 data : [
+                   {id: 2, name: 'updated-developer'},
+                   {id: 4, name: 'updated-manager1'}
+                 ]
+               }
+            """);
+
+        final DSResponse response = handler.handleUpdate(request);
+        JsonTestSupport.assertJsonEquals("""
+                 {
+                     status: 0,
+                     data:[
+                         {
+                             id:2,
+                             name:'updated-developer'
+                         },
+                         {
+                             id:4,
+                             name:'updated-manager1'
+                         }
+                     ]
+                }""", response);
+    }
+
+    @Test
+    public void batchUpdateKeepsTheOrderOfRecords() throws Exception {
+        withExtraFields(ExtraField.Email);
+
+        final DSRequest request = JsonTestSupport.fromJSON(new TypeReference<>(){}, """
+               {
+                 dataSource : "EmployeeDS",
+                 operationType : "UPDATE",
+                 data : [
+                   {id: 2, name: 'first'},
+                   {id: 2, name: 'second', email: 'second@acme.org'},
+                   {id: 2, name: 'third'}
+                 ]
+               }
+            """);
+
+        Assertions.assertEquals(0, handler.handleUpdate(request).getStatus());
+
+        final DSRequest fetch = new DSRequest();
+        fetch.setOutputs("id, name, email");
+        fetch.wrapAndSetData(Map.of("id", 2));
+
+        JsonTestSupport.assertJsonEquals("""
+                 {
+                     status: 0,
+                     startRow: 0,
+                     endRow: 1,
+                     totalRows: 1,
+                     data:[
+                         {
+                             id:2,
+                             name:'third',
+                             email:'second@acme.org'
+                         }
+                     ]
+                }""", handler.handleFetch(fetch));
+    }
+
     @Test
     public void updateMustIgnoreMetaDataInOldValues() throws Exception {
         withExtraFields(ExtraField.Email);
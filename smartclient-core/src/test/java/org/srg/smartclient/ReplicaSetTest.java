@@ -0,0 +1,45 @@
+package org.srg.smartclient;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.srg.smartclient.isomorphic.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ReplicaSetTest {
+
+    @Test
+    public void roundRobin() throws Exception {
+        final ReplicaSet<String> replicas = new ReplicaSet<>(List.of("r1", "r2", "r3"), Config.SQLConfig.ReplicaBalancing.roundRobin);
+
+        final List<String> used = new ArrayList<>();
+        for (int i = 0; i < 4; ++i) {
+            replicas.withReplicaDo(r -> {
+                used.add(r);
+                return null;
+            });
+        }
+
+        Assertions.assertEquals(List.of("r1", "r2", "r3", "r1"), used);
+    }
+
+    @Test
+    public void leastLoadedSkipsBusyReplica() throws Exception {
+        final ReplicaSet<String> replicas = new ReplicaSet<>(List.of("r1", "r2"), Config.SQLConfig.ReplicaBalancing.leastLoaded);
+
+        final List<String> used = new ArrayList<>();
+        replicas.withReplicaDo(busy -> {
+            // r1 is busy while the nested operations are picking a replica
+            for (int i = 0; i < 3; ++i) {
+                replicas.withReplicaDo(r -> {
+                    used.add(r);
+                    return null;
+                });
+            }
+            return null;
+        });
+
+        Assertions.assertEquals(List.of("r2", "r2", "r2"), used);
+    }
+}
@@ -28,6 +28,23 @@ public class TestServerConfig {
                         "               password:'sa'," +
                         "               user:'sa'," +
                         "               url:'jdbc:h2:mem:test:~/test'" +
+                        "            }," +
+                        "            replicas:['test1']," +
+                        "            replicaBalancing:'leastLoaded'," +
+                        "            pool:{" +
+                        "               enabled:true," +
+                        "               maxActive:5," +
+                        "               maxIdle:-1," +
+                        "               minIdle:-1," +
+                        "               whenExhaustedAction:'block'," +
+                        "               maxWait:1000," +
+                        "               testOnBorrow:true," +
+                        "               testOnReturn:false," +
+                        "               testWhileIdle:false," +
+                        "               validationTimeout:5," +
+                        "               timeBetweenEvictionRunsMillis:-1," +
+                        "               minEvictableIdleTimeMillis:1800000," +
+                        "               numTestsPerEvictionRun:3" +
                         "            }" +
                         "         }," +
                         "         test1:{" +
@@ -39,6 +56,23 @@ public class TestServerConfig {
                         "            driverClass:'com.mysql.jdbc.jdbc2.optional.MysqlDataSource'," +
                         "            driverProperties:{" +
                         "               url:'jdbc:mysql://host1:33060/test'" +
+                        "            }," +
+                        "            replicas:[]," +
+                        "            replicaBalancing:'roundRobin'," +
+                        "            pool:{" +
+                        "               enabled:true," +
+                        "               maxActive:-1," +
+                        "               maxIdle:-1," +
+                        "               minIdle:-1," +
+                        "               whenExhaustedAction:'grow'," +
+                        "               maxWait:30000," +
+                        "               testOnBorrow:true," +
+                        "               testOnReturn:false," +
+                        "               testWhileIdle:false," +
+                        "               validationTimeout:5," +
+                        "               timeBetweenEvictionRunsMillis:-1," +
+                        "               minEvictableIdleTimeMillis:1800000," +
+                        "               numTestsPerEvictionRun:3" +
                         "            }" +
                         "         }" +
                         "      }" +
@@ -2,6 +2,8 @@ package org.srg.smartclient.spring;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.srg.smartclient.DSDispatcher;
+import org.srg.smartclient.isomorphic.Config;
+import reactor.core.scheduler.Schedulers;
 
 /**
  * Configuration properties for SmartClient.
@@ -9,9 +11,86 @@ import org.srg.smartclient.DSDispatcher;
 @ConfigurationProperties(prefix = "spring.smartclient")
 public class SmartClientProperties {
 
+    /**
+     * Scheduler that performs the blocking request processing (JDBC, DMI) off the event loop.
+     */
+    public static class Dispatch {
+        public enum SchedulerType {
+            boundedElastic,
+
+            /**
+             * Requires a runtime with virtual threads support, otherwise falls back to {@link #boundedElastic}
+             */
+            virtual
+        }
+
+        private SchedulerType scheduler = SchedulerType.boundedElastic;
+        private int threadCap = Schedulers.DEFAULT_BOUNDED_ELASTIC_SIZE;
+        private int queueCap = Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE;
+        private int responseChunkSize = 8192;
+
+        /**
+         * Whether exported files are compressed on the fly, if the client accepts gzip encoding
+         */
+        private boolean exportGzip = true;
+
+        public SchedulerType getScheduler() {
+            return scheduler;
+        }
+
+        public void setScheduler(SchedulerType scheduler) {
+            this.scheduler = scheduler;
+        }
+
+        public int getThreadCap() {
+            return threadCap;
+        }
+
+        public void setThreadCap(int threadCap) {
+            this.threadCap = threadCap;
+        }
+
+        /**
+         * Max number of the requests waiting for a thread, the excess ones are rejected
+         */
+        public int getQueueCap() {
+            return queueCap;
+        }
+
+        public void setQueueCap(int queueCap) {
+            this.queueCap = queueCap;
+        }
+
+        /**
+         * Size in bytes of the chunks the response body is sent by
+         */
+        public int getResponseChunkSize() {
+            return responseChunkSize;
+        }
+
+        public void setResponseChunkSize(int responseChunkSize) {
+            this.responseChunkSize = responseChunkSize;
+        }
+
+        public boolean isExportGzip() {
+            return exportGzip;
+        }
+
+        public void setExportGzip(boolean exportGzip) {
+            this.exportGzip = exportGzip;
+        }
+    }
+
     private String dispatcherPath = "/dispatcher";
     private String sharedDirectory = DSDispatcher.DEFAULT_DS_PATH;
 
+    /**
+     * How a read replica is picked for a fetch, if replica data sources are provided to the configurer
+     */
+    private Config.SQLConfig.ReplicaBalancing replicaBalancing = Config.SQLConfig.ReplicaBalancing.roundRobin;
+
+    private Dispatch dispatch = new Dispatch();
+
     public String getDispatcherPath() {
         return dispatcherPath;
     }
@@ -27,4 +106,20 @@ public class SmartClientProperties {
     public void setSharedDirectory(String sharedDirectory) {
         this.sharedDirectory = sharedDirectory;
     }
+
+    public Config.SQLConfig.ReplicaBalancing getReplicaBalancing() {
+        return replicaBalancing;
+    }
+
+    public void setReplicaBalancing(Config.SQLConfig.ReplicaBalancing replicaBalancing) {
+        this.replicaBalancing = replicaBalancing;
+    }
+
+    public Dispatch getDispatch() {
+        return dispatch;
+    }
+
+    public void setDispatch(Dispatch dispatch) {
+        this.dispatch = dispatch;
+    }
 }
@@ -10,6 +10,7 @@ import org.srg.smartclient.JDBCHandler;
 import org.srg.smartclient.spring.SmartClientProperties;
 
 import javax.sql.DataSource;
+import java.util.List;
 
 /**
  * Basic {@link SmartClientConfigurer} implementation.
@@ -17,6 +18,7 @@ import javax.sql.DataSource;
 public class BasicSmartClientConfigurer implements SmartClientConfigurer, InitializingBean {
     private final SmartClientProperties properties;
     private final DataSource dataSource;
+    private List<DataSource> replicaDataSources = List.of();
     private PlatformTransactionManager transactionManager;
     private IDSDispatcher dsDispatcher;
     private DataSourceJDBCPolicy dataSourceJDBCPolicy;
@@ -37,6 +39,13 @@ public class BasicSmartClientConfigurer implements SmartClientConfigurer, Initia
         return dsDispatcher;
     }
 
+    /**
+     * Read replicas of the data source, fetches that are not a part of a write transaction are routed to them
+     */
+    public void setReplicaDataSources(List<DataSource> replicaDataSources) {
+        this.replicaDataSources = replicaDataSources;
+    }
+
     protected JDBCHandler.JDBCPolicy getJdbcPolicy() {
         return dataSourceJDBCPolicy;
     }
@@ -62,7 +71,7 @@ public class BasicSmartClientConfigurer implements SmartClientConfigurer, Initia
         try {
             Assert.state(dataSource != null, "DataSource must be set.");
 
-            dataSourceJDBCPolicy = new DataSourceJDBCPolicy(dataSource);
+            dataSourceJDBCPolicy = new DataSourceJDBCPolicy(dataSource, replicaDataSources, properties.getReplicaBalancing());
 
             this.transactionManager = buildTransactionManager();
             this.dsDispatcher = buildDSDispatcher();
@@ -0,0 +1,41 @@
+package org.srg.smartclient.spring.autoconfiguration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Detects blocking calls performed on the threads that must never block: Reactor non-blocking
+ * scheduler threads and Netty event loops.
+ */
+final class BlockingCallDetector {
+    private static final Logger logger = LoggerFactory.getLogger(BlockingCallDetector.class);
+
+    /**
+     * Netty is not a compile time dependency, its event loop threads are recognized by the thread class
+     */
+    private static final String NETTY_THREAD_CLASS = "io.netty.util.concurrent.FastThreadLocalThread";
+
+    private BlockingCallDetector() {}
+
+    static boolean isInNonBlockingThread() {
+        if (Schedulers.isInNonBlockingThread()) {
+            return true;
+        }
+
+        for (Class<?> c = Thread.currentThread().getClass(); c != Thread.class; c = c.getSuperclass()) {
+            if (NETTY_THREAD_CLASS.equals(c.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static void warnIfNonBlockingThread(String operation) {
+        if (isInNonBlockingThread()) {
+            logger.warn("Blocking call '%s' is performed on the non-blocking thread '%s', it stalls all the work of the event loop. Consider to offload it to the dispatch scheduler."
+                            .formatted(operation, Thread.currentThread().getName()),
+                    logger.isDebugEnabled() ? new Throwable("Blocking call stack trace") : null);
+        }
+    }
+}
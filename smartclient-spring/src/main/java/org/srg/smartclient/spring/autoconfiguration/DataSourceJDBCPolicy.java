@@ -2,20 +2,58 @@ package org.srg.smartclient.spring.autoconfiguration;
 
 import org.slf4j.LoggerFactory;
 import org.srg.smartclient.JDBCHandler;
+import org.srg.smartclient.ReplicaSet;
+import org.srg.smartclient.isomorphic.Config;
 import org.srg.smartclient.utils.Utils;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
+import java.util.List;
 
 public class DataSourceJDBCPolicy implements JDBCHandler.JDBCPolicy {
     private DataSource dataSource;
 
+    /**
+     * Null if there are no read replicas
+     */
+    private ReplicaSet<DataSource> replicas;
+
     public DataSourceJDBCPolicy(DataSource dataSource) {
         this.dataSource = dataSource;
     }
 
+    public DataSourceJDBCPolicy(DataSource dataSource, List<DataSource> replicas, Config.SQLConfig.ReplicaBalancing balancing) {
+        this(dataSource);
+
+        if (!replicas.isEmpty()) {
+            this.replicas = new ReplicaSet<>(replicas, balancing);
+        }
+    }
+
     @Override
     public void withConnectionDo(String database, Utils.CheckedFunction<Connection, Void> callback) throws Exception {
+        withConnectionDo(dataSource, callback);
+    }
+
+    @Override
+    public void withReadOnlyConnectionDo(String database, Utils.CheckedFunction<Connection, Void> callback) throws Exception {
+        if (replicas == null) {
+            withConnectionDo(dataSource, callback);
+            return;
+        }
+
+        replicas.withReplicaDo(replica -> {
+            withConnectionDo(replica, conn -> {
+                ReplicaSet.readOnlyDo(conn, callback);
+                return null;
+            });
+            return null;
+        });
+    }
+
+    private static void withConnectionDo(DataSource dataSource, Utils.CheckedFunction<Connection, Void> callback) throws Exception {
+        BlockingCallDetector.warnIfNonBlockingThread("JDBC connection checkout");
+
         // https://www.postgresql.org/message-id/CAKq0gv%2BwqDv6cmF__XR1sEY3wun0V2FQ4HenG%2BEc073xOU394Q%40mail.gmail.com
         try (final Connection connection = dataSource.getConnection() ){
             if (connection.getAutoCommit()) {
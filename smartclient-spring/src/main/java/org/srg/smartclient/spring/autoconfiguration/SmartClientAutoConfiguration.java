@@ -3,10 +3,12 @@ package org.srg.smartclient.spring.autoconfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.*;
@@ -15,23 +17,39 @@ import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.util.MimeType;
+import org.springframework.web.reactive.function.BodyExtractors;
+import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.server.RouterFunction;
 import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import org.srg.smartclient.IDSDispatcher;
+import org.srg.smartclient.QueryCancellation;
+import org.srg.smartclient.isomorphic.DSRequest;
 import org.srg.smartclient.isomorphic.DSTransaction;
 import org.srg.smartclient.utils.Serde;
 import org.srg.smartclient.isomorphic.DSResponse;
 import org.srg.smartclient.isomorphic.IDSRequest;
 import org.srg.smartclient.spring.SmartClientProperties;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
 import javax.sql.DataSource;
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.OutputStreamWriter;
-import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
 
 import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
 import static org.springframework.web.reactive.function.server.RequestPredicates.POST;
@@ -49,6 +67,7 @@ import static org.springframework.web.reactive.function.server.RequestPredicates
 @Import(SmartclientConfigurerConfiguration.class)
 public class SmartClientAutoConfiguration {
     private static Logger logger = LoggerFactory.getLogger(SmartClientAutoConfiguration.class);
+    private static final int BUFFER_SIZE = 8192;
 //    private static final String REST_URL = "/dispatcher";
 
     @Autowired
@@ -57,42 +76,46 @@ public class SmartClientAutoConfiguration {
     @Autowired
     private IDSDispatcher dsDispatcher;
 
-    protected Mono<ServerResponse> processRequest(String request, String fileName) {
+    /**
+     * Requests are dispatched by the calling thread, it must not be an event loop thread,
+     * see {@link #processCancellably(ServerRequest, Scheduler, String)}, whereas responses are serialized by the provided scheduler
+     * while the body is being sent, see {@link #streamBody(Scheduler, StreamingBody.Producer)}.
+     *
+     * @param gzip whether the exported file is compressed, ignored for the usual requests
+     */
+    protected Mono<ServerResponse> processRequest(IDSRequest dsRequest, String fileName, boolean gzip, Scheduler scheduler) {
+        final Integer transactionNum = dsRequest instanceof DSTransaction dsTransaction ? dsTransaction.getTransactionNum() : null;
+        final boolean isExport = fileName != null && !fileName.isBlank();
 
-        final IDSRequest dsRequest;
         try {
-            dsRequest = Serde.deserializeRequest(request);
-        } catch(Exception ex) {
-            logger.error("Can't deserialize ds request: \n%s"
-                            .formatted(request),
-                    ex);
-
-            return ServerResponse
-                    .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .cacheControl(CacheControl.noCache())
-                    .bodyValue(ex.getMessage());
-        }
-
-        final Integer transactionNum = dsRequest instanceof DSTransaction dsTransaction ? dsTransaction.getTransactionNum() : null;
+            if (isExport) {
+                if (!(dsRequest instanceof DSRequest exportRequest)) {
+                    throw new IllegalStateException("Multiple requests is not supported for export data.");
+                }
 
+                // rows are streamed from the database cursor straight to the response, the count query is skipped
+                exportRequest.setExportResults(true);
+            }
 
-        try {
             final Collection<DSResponse> responses = dsDispatcher.dispatch(dsRequest);
 
-            if (fileName == null || fileName.isBlank()) {
+            if (!isExport) {
                 // -- Usual request processing
-                try (final StringWriter sw = new StringWriter();) {
-                    sw.write("<SCRIPT>//'\"]]>>isc_JSONResponseStart>>\n");
+                final Flux<DataBuffer> body = streamBody(scheduler, out -> {
+                    try (final Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+                        writer.write("<SCRIPT>//'\"]]>>isc_JSONResponseStart>>\n");
 
-                    Serde.serializeResponse(sw, transactionNum, responses);
+                        Serde.serializeResponse(writer, transactionNum, responses);
 
-                    sw.write("\n//isc_JSONResponseEnd");
+                        writer.write("\n//isc_JSONResponseEnd");
+                    }
+                });
 
-                    return ServerResponse
-                            .ok()
-                            .cacheControl(CacheControl.noCache())
-                            .bodyValue(sw.toString());
-                }
+                return ServerResponse
+                        .ok()
+                        .cacheControl(CacheControl.noCache())
+                        .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+                        .body(BodyInserters.fromDataBuffers(body));
             } else {
                 // -- export data request
 
@@ -112,52 +135,179 @@ public class SmartClientAutoConfiguration {
 
                 final DSResponse response = responses.iterator().next();
 
-                try(final ByteArrayOutputStream bos = new ByteArrayOutputStream();) {
-                    try (final OutputStreamWriter writer = new OutputStreamWriter(bos);) {
+                final Flux<DataBuffer> body = streamBody(scheduler, out -> {
+                    try (final Writer writer = new OutputStreamWriter(gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : out, StandardCharsets.UTF_8)) {
                         Serde.serializeResponseAsCSV(writer, ',', response);
-                        writer.flush();
                     }
-//                final InputStreamResource resource =  new InputStreamResource(
-//                        new ByteArrayInputStream(
-//                                bos.toByteArray()
-//                        )
-//                );
-
-                    // https://forums.smartclient.com/forum/smart-gwt-technical-q-a/7425-url-request-using-exportdata-in-listgrid
-                    // https://medium.com/@victortemitope95/how-to-write-and-download-a-csv-file-in-spring-webflux-5df8d817a597
-                    return ServerResponse
-                            .ok()
-                            .cacheControl(CacheControl.noCache())
-                            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
-                            .header(HttpHeaders.CONTENT_TYPE, "text/csv")
-//                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_OCTET_STREAM_VALUE)
-//                        .body(BodyInserters.fromResource(resource));
-//                        .body(Mono.just(new ByteArrayInputStream(bos.toByteArray())));
-                            .bodyValue(bos.toString());
+                });
+
+                // https://forums.smartclient.com/forum/smart-gwt-technical-q-a/7425-url-request-using-exportdata-in-listgrid
+                // https://medium.com/@victortemitope95/how-to-write-and-download-a-csv-file-in-spring-webflux-5df8d817a597
+                final ServerResponse.BodyBuilder builder = ServerResponse
+                        .ok()
+                        .cacheControl(CacheControl.noCache())
+                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                        .header(HttpHeaders.CONTENT_TYPE, "text/csv");
+
+                if (gzip) {
+                    builder.header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
                 }
+
+                return builder.body(BodyInserters.fromDataBuffers(body));
             }
         } catch (Throwable t) {
             return Mono.error(t);
         }
     }
 
+    /**
+     * The body is written by chunks of a bounded size with backpressure, rows that are streamed from the database
+     * are read while the previous chunks are being sent. Cancelling the body cancels the running statements.
+     *
+     * Once the first chunk is sent, a failure can't be reported by the HTTP status anymore, the connection is aborted.
+     */
+    protected Flux<DataBuffer> streamBody(Scheduler scheduler, StreamingBody.Producer producer) {
+        final QueryCancellation cancellation = QueryCancellation.current();
+
+        return StreamingBody.create(
+                        DefaultDataBufferFactory.sharedInstance,
+                        smartClientProperties.getDispatch().getResponseChunkSize(),
+                        scheduler,
+                        out -> QueryCancellation.doWithin(cancellation, () -> {
+                            producer.writeTo(out);
+                            return null;
+                        })
+                )
+                .doOnCancel(() -> {
+                    if (cancellation != null) {
+                        cancellation.cancel();
+                    }
+                });
+    }
+
+
+    /**
+     * Request processing is blocking (JDBC, DMI), therefore it is performed by this scheduler
+     * rather than by the event loop thread that has received the request.
+     */
+    @Bean(destroyMethod = "dispose")
+    @ConditionalOnMissingBean(name = "smartClientDispatchScheduler")
+    public Scheduler smartClientDispatchScheduler() {
+        final SmartClientProperties.Dispatch dispatch = smartClientProperties.getDispatch();
+
+        if (dispatch.getScheduler() == SmartClientProperties.Dispatch.SchedulerType.virtual) {
+            try {
+                final ExecutorService executor = (ExecutorService) Executors.class
+                        .getMethod("newVirtualThreadPerTaskExecutor")
+                        .invoke(null);
+
+                return Schedulers.fromExecutorService(executor, "smartclient-dispatch");
+            } catch (ReflectiveOperationException ex) {
+                logger.warn("Virtual threads are not supported by the runtime, bounded elastic scheduler will be used to dispatch requests.");
+            }
+        }
+
+        return Schedulers.newBoundedElastic(dispatch.getThreadCap(), dispatch.getQueueCap(), "smartclient-dispatch");
+    }
 
     @Bean
-    public RouterFunction<ServerResponse> smartClientRESTHandler() {
+    public RouterFunction<ServerResponse> smartClientRESTHandler(@Qualifier("smartClientDispatchScheduler") Scheduler dispatchScheduler) {
         // https://github.com/sdeleuze/webflux-multipart/blob/master/src/main/java/com/example/MultipartRoute.java
         //https://www.programcreek.com/java-api-examples/?code=hantsy/spring-reactive-sample/spring-reactive-sample-master/routes/src/main/java/com/example/demo/PostHandler.java
         return RouterFunctions.route(POST(smartClientProperties.getDispatcherPath()), r ->
-             r.bodyToMono(String.class)
-                    .flatMap( body -> this.processRequest(body, null))
+             processCancellably(r, dispatchScheduler, null)
         )
         // export data
         .andRoute(POST(smartClientProperties.getDispatcherPath()+"/{export-file-name}"), r -> {
             final String exportFile = r.pathVariable("export-file-name");
-            return r.bodyToMono(String.class)
-                    .flatMap(body -> this.processRequest(body,exportFile));
+            return processCancellably(r, dispatchScheduler, exportFile);
         });
     }
 
+    /**
+     * The body is fed to the non-blocking JSON parser chunk by chunk, as it arrives, instead of being
+     * aggregated into a String, the parsed tokens are bound to the request by the dispatch thread.
+     */
+    protected static Mono<Serde.RequestDecoder> decodeRequest(ServerRequest request) {
+        return request.body(BodyExtractors.toDataBuffers())
+                .reduceWith(
+                        () -> {
+                            try {
+                                return new Serde.RequestDecoder();
+                            } catch (IOException ex) {
+                                throw new UncheckedIOException(ex);
+                            }
+                        },
+                        (decoder, buffer) -> {
+                            try {
+                                return decoder.feed(buffer.asByteBuffer());
+                            } catch (IOException ex) {
+                                throw new UncheckedIOException(ex);
+                            } finally {
+                                DataBufferUtils.release(buffer);
+                            }
+                        });
+    }
+
+    protected Mono<ServerResponse> deserializationFailed(Exception ex) {
+        return ServerResponse
+                .status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .cacheControl(CacheControl.noCache())
+                .bodyValue(ex.getMessage());
+    }
+
+    /**
+     * If the client disconnects while the request is being processed, the subscription is cancelled,
+     * and so are the SQL statements executed on behalf of the request.
+     */
+    protected Mono<ServerResponse> processCancellably(ServerRequest request, Scheduler dispatchScheduler, String fileName) {
+        final QueryCancellation cancellation = new QueryCancellation();
+        final boolean gzip = fileName != null
+                && smartClientProperties.getDispatch().isExportGzip()
+                && acceptsGzip(request);
+
+        return decodeRequest(request)
+                .publishOn(dispatchScheduler)
+                .flatMap(decoder -> {
+                    final IDSRequest dsRequest;
+                    try {
+                        dsRequest = decoder.decode();
+                    } catch (Exception ex) {
+                        logger.error("Can't deserialize ds request.", ex);
+                        return deserializationFailed(ex);
+                    }
+
+                    try {
+                        return QueryCancellation.doWithin(cancellation, () -> this.processRequest(dsRequest, fileName, gzip, dispatchScheduler));
+                    } catch (Exception ex) {
+                        return Mono.error(ex);
+                    }
+                })
+                .onErrorResume(UncheckedIOException.class, ex -> {
+                    logger.error("Can't deserialize ds request.", ex.getCause());
+                    return deserializationFailed(ex.getCause());
+                })
+                .doOnCancel(() -> {
+                    logger.debug("Request has been abandoned by the client, running statements will be cancelled.");
+                    cancellation.cancel();
+                });
+    }
+
+    protected static boolean acceptsGzip(ServerRequest request) {
+        for (String value : request.headers().header(HttpHeaders.ACCEPT_ENCODING)) {
+            for (String coding : value.split(",")) {
+                final String c = coding.trim();
+                if (c.regionMatches(true, 0, "gzip", 0, 4)
+                        && (c.length() == 4 || c.charAt(4) == ';')
+                        && !c.replace(" ", "").endsWith(";q=0")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     @Bean
     public RouterFunction<ServerResponse> smartClientFileDownload( ) {
         return RouterFunctions
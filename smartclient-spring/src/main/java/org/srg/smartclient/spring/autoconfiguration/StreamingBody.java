@@ -0,0 +1,169 @@
+package org.srg.smartclient.spring.autoconfiguration;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+
+/**
+ * Publishes the bytes written by a blocking producer as {@link DataBuffer}s of a bounded size,
+ * so that the first chunk is sent while the rest of the response is still being produced.
+ *
+ * The producer runs on the provided scheduler and is suspended while the subscriber has no demand,
+ * therefore a request holds a single chunk being written, plus the ones requested but not written yet.
+ */
+final class StreamingBody {
+
+    @FunctionalInterface
+    interface Producer {
+        void writeTo(OutputStream out) throws Exception;
+    }
+
+    private StreamingBody() {}
+
+    static Flux<DataBuffer> create(DataBufferFactory bufferFactory, int chunkSize, Scheduler scheduler, Producer producer) {
+        return Flux.<DataBuffer>create(sink -> {
+                    final ChunkOutputStream out = new ChunkOutputStream(sink, bufferFactory, chunkSize);
+                    sink.onRequest(out::request);
+                    sink.onCancel(out::cancel);
+
+                    // the demand requested before the consumer has been registered is not passed to it
+                    out.requestAtLeast(sink.requestedFromDownstream());
+
+                    try {
+                        producer.writeTo(out);
+                        out.close();
+                        sink.complete();
+                    } catch (Throwable t) {
+                        out.discard();
+                        if (!out.isCancelled()) {
+                            sink.error(t);
+                        }
+                    }
+                })
+                /*
+                 * The producer blocks the worker while it waits for demand, therefore the subsequent requests
+                 * must not be scheduled on the same worker, they are passed by the subscriber's thread as is.
+                 */
+                .subscribeOn(scheduler, false);
+    }
+
+    /**
+     * Buffers are owned by the producer thread until they are emitted,
+     * the subscriber thread only updates the demand.
+     */
+    private static class ChunkOutputStream extends OutputStream {
+        private final FluxSink<DataBuffer> sink;
+        private final DataBufferFactory bufferFactory;
+        private final int chunkSize;
+
+        private DataBuffer buffer;
+
+        // guarded by this
+        private long demand;
+        private boolean cancelled;
+
+        ChunkOutputStream(FluxSink<DataBuffer> sink, DataBufferFactory bufferFactory, int chunkSize) {
+            this.sink = sink;
+            this.bufferFactory = bufferFactory;
+            this.chunkSize = chunkSize;
+        }
+
+        synchronized void request(long n) {
+            demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+            notifyAll();
+        }
+
+        synchronized void requestAtLeast(long n) {
+            if (n > demand) {
+                demand = n;
+                notifyAll();
+            }
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            notifyAll();
+        }
+
+        synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (buffer == null) {
+                    buffer = bufferFactory.allocateBuffer(chunkSize);
+                }
+
+                final int n = Math.min(len, chunkSize - buffer.readableByteCount());
+                buffer.write(b, off, n);
+                off += n;
+                len -= n;
+
+                if (buffer.readableByteCount() >= chunkSize) {
+                    emit();
+                }
+            }
+        }
+
+        /**
+         * Does nothing: writers flush after each written value, that would produce tiny chunks,
+         * the last incomplete chunk is emitted on close.
+         */
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (buffer != null && buffer.readableByteCount() > 0) {
+                emit();
+            }
+        }
+
+        void discard() {
+            if (buffer != null) {
+                DataBufferUtils.release(buffer);
+                buffer = null;
+            }
+        }
+
+        private void emit() throws IOException {
+            synchronized (this) {
+                while (demand == 0 && !cancelled) {
+                    try {
+                        wait();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Waiting for the response demand was interrupted.");
+                    }
+                }
+
+                if (cancelled) {
+                    throw new IOException("Response has been cancelled by the client.");
+                }
+
+                if (demand != Long.MAX_VALUE) {
+                    --demand;
+                }
+            }
+
+            final DataBuffer b = buffer;
+            buffer = null;
+            sink.next(b);
+        }
+    }
+}
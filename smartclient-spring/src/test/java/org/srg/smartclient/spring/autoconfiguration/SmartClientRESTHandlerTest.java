@@ -0,0 +1,219 @@
+package org.srg.smartclient.spring.autoconfiguration;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.mock.web.reactive.function.server.MockServerRequest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.srg.smartclient.QueryCancellation;
+import org.srg.smartclient.annotations.SmartClientDMIHandler;
+import org.srg.smartclient.isomorphic.DSField;
+import org.srg.smartclient.isomorphic.DSRequest;
+import org.srg.smartclient.isomorphic.DSResponse;
+import org.srg.smartclient.spring.EnableSmartClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ContextConfiguration( classes = {SmartClientRESTHandlerTest.TestConfig.class})
+@EnableAutoConfiguration(exclude = {HttpMessageConvertersAutoConfiguration.class})
+@EnableSmartClient
+public class SmartClientRESTHandlerTest {
+
+    @SmartClientDMIHandler(id = "numbers", methodName = "fetch")
+    public static class NumbersHandler {
+        static final AtomicReference<String> thread = new AtomicReference<>();
+
+        public DSResponse fetch(DSRequest request) {
+            thread.set(Thread.currentThread().getName());
+
+            final DSField dsf = new DSField();
+            dsf.setType(DSField.FieldType.INTEGER);
+            dsf.setName("data");
+
+            return DSResponse.successFetch(0, 1, 1, List.of(dsf), Collections.singletonList(new Object[] {24}));
+        }
+    }
+
+    @SmartClientDMIHandler(id = "slow", methodName = "fetch")
+    public static class SlowHandler {
+        static final AtomicReference<QueryCancellation> cancellation = new AtomicReference<>();
+        static volatile CountDownLatch started;
+        static volatile CountDownLatch release;
+
+        public DSResponse fetch(DSRequest request) throws InterruptedException {
+            cancellation.set(QueryCancellation.current());
+            started.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return DSResponse.successFetch(0, 0, 0, List.of(), List.of());
+        }
+    }
+
+    public static class TestConfig {
+        @Bean
+        public DataSource fakeDataSource() {
+            return new SimpleDriverDataSource();
+        }
+
+        @Bean
+        public NumbersHandler numbersHandler() {
+            return new NumbersHandler();
+        }
+
+        @Bean
+        public SlowHandler slowHandler() {
+            return new SlowHandler();
+        }
+    }
+
+    private static final String FETCH_NUMBERS = """
+            {"dataSource":"numbers","operationType":"fetch"}""";
+
+    @Autowired
+    private SmartClientAutoConfiguration autoConfiguration;
+
+    @Autowired
+    @Qualifier("smartClientRESTHandler")
+    private RouterFunction<ServerResponse> restHandler;
+
+    @Autowired
+    @Qualifier("smartClientDispatchScheduler")
+    private Scheduler dispatchScheduler;
+
+    private WebTestClient client;
+
+    @BeforeEach
+    public void setupClient() {
+        client = WebTestClient.bindToRouterFunction(restHandler).build();
+    }
+
+    @Test
+    public void requestIsDispatchedByDispatchScheduler() {
+        final String body = client.post().uri("/dispatcher")
+                .bodyValue(FETCH_NUMBERS)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).returnResult().getResponseBody();
+
+        Assertions.assertTrue(body.startsWith("<SCRIPT>//'\"]]>>isc_JSONResponseStart>>"));
+        Assertions.assertTrue(body.contains("\"data\" : 24"), body);
+        Assertions.assertTrue(NumbersHandler.thread.get().startsWith("smartclient-dispatch"), NumbersHandler.thread.get());
+    }
+
+    @Test
+    public void transactionIsDecodedFromSeveralChunks() {
+        final byte[] request = """
+                {
+                    "transaction": {
+                        "transactionNum": 7,
+                        "operations": [
+                            {"dataSource":"numbers","operationType":"fetch","operationId":"first"},
+                            {"dataSource":"numbers","operationType":"fetch","operationId":"second"}
+                        ]
+                    }
+                }""".getBytes(StandardCharsets.UTF_8);
+
+        final List<DataBuffer> chunks = new ArrayList<>();
+        for (int i = 0; i < request.length; i += 16) {
+            chunks.add(DefaultDataBufferFactory.sharedInstance.wrap(
+                    java.util.Arrays.copyOfRange(request, i, Math.min(request.length, i + 16))));
+        }
+
+        final String body = client.post().uri("/dispatcher")
+                .body(Flux.fromIterable(chunks), DataBuffer.class)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).returnResult().getResponseBody();
+
+        Assertions.assertTrue(body.contains("\"transactionNum\" : 7"), body);
+        Assertions.assertTrue(body.contains("\"operationId\" : \"first\""), body);
+        Assertions.assertTrue(body.contains("\"operationId\" : \"second\""), body);
+    }
+
+    @Test
+    public void malformedRequestIsRespondedWithServerError() {
+        client.post().uri("/dispatcher")
+                .bodyValue("{\"dataSource\": ")
+                .exchange()
+                .expectStatus().is5xxServerError();
+    }
+
+    @Test
+    public void exportIsCompressedIfClientAcceptsGzip() throws Exception {
+        final byte[] gzipped = client.post().uri("/dispatcher/numbers.csv")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate")
+                .bodyValue(FETCH_NUMBERS)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .expectBody().returnResult().getResponseBody();
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            Assertions.assertEquals("\"data\"\n24\n", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+
+        final String plain = client.post().uri("/dispatcher/numbers.csv")
+                .bodyValue(FETCH_NUMBERS)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(HttpHeaders.CONTENT_ENCODING)
+                .expectBody(String.class).returnResult().getResponseBody();
+
+        Assertions.assertEquals("\"data\"\n24\n", plain);
+    }
+
+    @Test
+    public void abandonedRequestIsCancelled() throws Exception {
+        SlowHandler.started = new CountDownLatch(1);
+        SlowHandler.release = new CountDownLatch(1);
+        SlowHandler.cancellation.set(null);
+
+        final MockServerRequest request = MockServerRequest.builder()
+                .method(HttpMethod.POST)
+                .uri(URI.create("/dispatcher"))
+                .body(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(
+                        "{\"dataSource\":\"slow\",\"operationType\":\"fetch\"}".getBytes(StandardCharsets.UTF_8))));
+
+        final Disposable subscription = autoConfiguration.processCancellably(request, dispatchScheduler, null).subscribe();
+        try {
+            Assertions.assertTrue(SlowHandler.started.await(10, TimeUnit.SECONDS));
+            Assertions.assertNotNull(SlowHandler.cancellation.get());
+            Assertions.assertFalse(SlowHandler.cancellation.get().isCancelled());
+
+            subscription.dispose();
+            Assertions.assertTrue(SlowHandler.cancellation.get().isCancelled());
+        } finally {
+            SlowHandler.release.countDown();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.srg.smartclient.spring.autoconfiguration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class StreamingBodyTest {
+    private static final int CHUNK_SIZE = 10;
+
+    private Scheduler producerScheduler;
+    private Scheduler consumerScheduler;
+
+    @BeforeEach
+    public void setupSchedulers() {
+        producerScheduler = Schedulers.newBoundedElastic(2, 16, "test-producer");
+        consumerScheduler = Schedulers.newSingle("test-consumer");
+    }
+
+    @AfterEach
+    public void disposeSchedulers() {
+        producerScheduler.dispose();
+        consumerScheduler.dispose();
+    }
+
+    @Test
+    public void bodyLargerThanPrefetchIsStreamedCompletely() {
+        final int chunks = 1000;
+
+        final Flux<DataBuffer> body = StreamingBody.create(DefaultDataBufferFactory.sharedInstance, CHUNK_SIZE, producerScheduler, out -> {
+            for (int i = 0; i < chunks; ++i) {
+                out.write(new byte[CHUNK_SIZE]);
+            }
+        });
+
+        // -- the demand is requested by another thread, 16 chunks at a time
+        final Long bytes = body
+                .publishOn(consumerScheduler, 16)
+                .map(b -> {
+                    final int n = b.readableByteCount();
+                    DataBufferUtils.release(b);
+                    return (long) n;
+                })
+                .reduce(0L, Long::sum)
+                .block(Duration.ofSeconds(10));
+
+        Assertions.assertEquals(chunks * CHUNK_SIZE, bytes);
+    }
+
+    @Test
+    public void producerIsStoppedWhenBodyIsCancelled() throws Exception {
+        final CountDownLatch stopped = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        final Flux<DataBuffer> body = StreamingBody.create(DefaultDataBufferFactory.sharedInstance, CHUNK_SIZE, producerScheduler, out -> {
+            try {
+                for (;;) {
+                    out.write(new byte[CHUNK_SIZE]);
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+                throw t;
+            } finally {
+                stopped.countDown();
+            }
+        });
+
+        final Long count = body
+                .publishOn(consumerScheduler, 2)
+                .doOnNext(DataBufferUtils::release)
+                .take(3)
+                .count()
+                .block(Duration.ofSeconds(10));
+
+        Assertions.assertEquals(3, count);
+        Assertions.assertTrue(stopped.await(10, TimeUnit.SECONDS));
+        Assertions.assertNotNull(failure.get());
+    }
+}